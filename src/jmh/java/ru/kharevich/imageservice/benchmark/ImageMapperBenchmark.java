@@ -0,0 +1,58 @@
+package ru.kharevich.imageservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.kharevich.imageservice.dto.transferObjects.FileTransferEntity;
+import ru.kharevich.imageservice.util.mapper.ImageMapper;
+import ru.kharevich.imageservice.util.mapper.ImageMapperImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Склейка содержимого файлов с именами в ImageMapper.mapFileToFileTransferEntities
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageMapperBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int fileCount;
+
+    private final ImageMapper imageMapper = new ImageMapperImpl();
+
+    private List<byte[]> files;
+
+    private List<String> names;
+
+    @Setup
+    public void setUp() {
+        files = new ArrayList<>(fileCount);
+        names = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            files.add(new byte[1024]);
+            names.add(UUID.randomUUID() + "_image.png");
+        }
+    }
+
+    @Benchmark
+    public List<FileTransferEntity> mapFileToFileTransferEntities() {
+        return imageMapper.mapFileToFileTransferEntities(files, names);
+    }
+
+}
@@ -0,0 +1,68 @@
+package ru.kharevich.imageservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.kharevich.imageservice.dto.response.ImageResponse;
+import ru.kharevich.imageservice.dto.transferObjects.FileTransferEntity;
+import ru.kharevich.imageservice.model.ImageType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация ImageResponse в JSON: содержимое файла кодируется в base64.
+ * toStream - потоковая запись в ответ, toBytes - буферизация всего тела в памяти
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageResponseSerializationBenchmark {
+
+    @Param({"102400", "1048576", "10485760"})
+    private int payloadBytes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final OutputStream sink = OutputStream.nullOutputStream();
+
+    private ImageResponse response;
+
+    @Setup
+    public void setUp() {
+        byte[] content = new byte[payloadBytes];
+        ThreadLocalRandom.current().nextBytes(content);
+        response = new ImageResponse(
+                ImageType.AVATAR,
+                List.of(new FileTransferEntity(content, UUID.randomUUID() + "_image.png")),
+                UUID.randomUUID()
+        );
+    }
+
+    @Benchmark
+    public void toStream() throws IOException {
+        objectMapper.writeValue(sink, response);
+    }
+
+    @Benchmark
+    public byte[] toBytes() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+}
@@ -0,0 +1,57 @@
+package ru.kharevich.imageservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import ru.kharevich.imageservice.util.PageUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Постраничная нарезка списка в PageUtils.convertListToPage: первая и последняя страница
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageUtilsBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"100", "10000"})
+    private int listSize;
+
+    private List<Integer> list;
+
+    private int lastPage;
+
+    @Setup
+    public void setUp() {
+        list = IntStream.range(0, listSize).boxed().toList();
+        lastPage = (listSize - 1) / PAGE_SIZE;
+    }
+
+    @Benchmark
+    public Page<Integer> firstPage() {
+        return PageUtils.convertListToPage(list, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Integer> lastPage() {
+        return PageUtils.convertListToPage(list, lastPage, PAGE_SIZE);
+    }
+
+}
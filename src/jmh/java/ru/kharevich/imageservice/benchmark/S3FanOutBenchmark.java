@@ -0,0 +1,107 @@
+package ru.kharevich.imageservice.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.env.MockEnvironment;
+import ru.kharevich.imageservice.cache.S3ObjectCache;
+import ru.kharevich.imageservice.config.ExecutorConfig;
+import ru.kharevich.imageservice.service.impl.S3StorageService;
+import ru.kharevich.imageservice.support.InMemoryS3Client;
+import ru.kharevich.imageservice.util.properties.ObjectCacheProperties;
+import ru.kharevich.imageservice.util.properties.S3Properties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Параллельное чтение пачки объектов (S3StorageService.downloadFiles) из 16 потоков-клиентов
+ * на s3TaskExecutor из ExecutorConfig: виртуальные потоки против обычных.
+ * latencyMicros имитирует сетевую задержку InMemoryS3Client, при которой потоки в основном ждут
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class S3FanOutBenchmark {
+
+    private static final int BATCH_SIZE = 16;
+
+    @Param({"102400"})
+    private int objectBytes;
+
+    @Param({"0", "2000", "20000"})
+    private int latencyMicros;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    private ExecutorService s3TaskExecutor;
+
+    private S3StorageService s3StorageService;
+
+    private byte[] content;
+
+    private List<String> keys;
+
+    @Setup
+    public void setUp() {
+        InMemoryS3Client s3Client = new InMemoryS3Client(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(latencyMicros)));
+
+        S3Properties s3Properties = new S3Properties();
+        s3Properties.setBucketName("benchmark");
+
+        ObjectCacheProperties cacheProperties = new ObjectCacheProperties();
+        cacheProperties.setEnabled(false);
+
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.threads.virtual.enabled", String.valueOf("virtual".equals(threads)));
+        s3TaskExecutor = new ExecutorConfig().s3TaskExecutor(environment);
+
+        s3StorageService = new S3StorageService(
+                s3Client,
+                null,
+                s3Properties,
+                s3TaskExecutor,
+                new S3ObjectCache(cacheProperties, new SimpleMeterRegistry())
+        );
+
+        content = new byte[objectBytes];
+        ThreadLocalRandom.current().nextBytes(content);
+        keys = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            String key = "object-" + i;
+            s3Client.put(key, content, "image/png");
+            keys.add(key);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        s3TaskExecutor.close();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public List<byte[]> downloadFiles() {
+        return s3StorageService.downloadFiles(keys);
+    }
+
+}
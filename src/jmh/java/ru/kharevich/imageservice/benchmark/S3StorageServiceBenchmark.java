@@ -0,0 +1,91 @@
+package ru.kharevich.imageservice.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.env.MockEnvironment;
+import ru.kharevich.imageservice.cache.S3ObjectCache;
+import ru.kharevich.imageservice.config.ExecutorConfig;
+import ru.kharevich.imageservice.service.impl.S3StorageService;
+import ru.kharevich.imageservice.support.InMemoryS3Client;
+import ru.kharevich.imageservice.util.properties.ObjectCacheProperties;
+import ru.kharevich.imageservice.util.properties.S3Properties;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение и запись через S3StorageService поверх InMemoryS3Client: без сети и с выключенным S3ObjectCache,
+ * то есть измеряется только собственная стоимость SDK-запроса и копирования содержимого
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class S3StorageServiceBenchmark {
+
+    private static final String KEY = "object";
+
+    @Param({"102400", "1048576"})
+    private int objectBytes;
+
+    private ExecutorService s3TaskExecutor;
+
+    private S3StorageService s3StorageService;
+
+    private byte[] content;
+
+    @Setup
+    public void setUp() {
+        InMemoryS3Client s3Client = new InMemoryS3Client();
+
+        S3Properties s3Properties = new S3Properties();
+        s3Properties.setBucketName("benchmark");
+
+        ObjectCacheProperties cacheProperties = new ObjectCacheProperties();
+        cacheProperties.setEnabled(false);
+
+        s3TaskExecutor = new ExecutorConfig().s3TaskExecutor(new MockEnvironment());
+
+        s3StorageService = new S3StorageService(
+                s3Client,
+                null,
+                s3Properties,
+                s3TaskExecutor,
+                new S3ObjectCache(cacheProperties, new SimpleMeterRegistry())
+        );
+
+        content = new byte[objectBytes];
+        ThreadLocalRandom.current().nextBytes(content);
+        s3Client.put(KEY, content, "image/png");
+    }
+
+    @TearDown
+    public void tearDown() {
+        s3TaskExecutor.close();
+    }
+
+    @Benchmark
+    public byte[] downloadFile() {
+        return s3StorageService.downloadFile(KEY);
+    }
+
+    @Benchmark
+    public void uploadBytes() {
+        s3StorageService.uploadBytes("upload", content, "image/png");
+    }
+
+}
@@ -0,0 +1,235 @@
+package ru.kharevich.imageservice.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import ru.kharevich.imageservice.model.Image;
+import ru.kharevich.imageservice.repository.ImageRepository;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Закрытая модель нагрузки: concurrency виртуальных потоков, каждый отправляет следующий запрос сразу после ответа
+ * на предыдущий, операция выбирается случайно по весам из mix. Задержки пишутся в HdrHistogram в микросекундах,
+ * ответы 4xx/5xx и ошибки соединения считаются отдельно и в гистограмму не попадают
+ */
+@Slf4j
+public class LoadDriver {
+
+    private static final String BOUNDARY = "loadtest-boundary";
+
+    private final URI baseUri;
+
+    private final LoadTestSettings settings;
+
+    private final HttpClient httpClient;
+
+    private final byte[] image;
+
+    private final Operation[] operations;
+
+    private final int[] cumulativeWeights;
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    private List<UUID> imageIds = List.of();
+
+    private List<UUID> parentIds = List.of();
+
+    public LoadDriver(URI baseUri, LoadTestSettings settings) {
+        this.baseUri = baseUri;
+        this.settings = settings;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.image = randomPng(settings.imageSize().toBytes());
+
+        this.operations = settings.mix().keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += settings.mix().get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        for (Operation operation : operations) {
+            recorders.put(operation, new Recorder(3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Загружает parents родителей по images-per-parent изображений через API и запоминает их идентификаторы
+     */
+    public void seed(ImageRepository imageRepository) throws IOException, InterruptedException {
+        log.info("Seeding {} parents with {} images of {} bytes",
+                settings.parents(), settings.imagesPerParent(), image.length);
+        for (int i = 0; i < settings.parents(); i++) {
+            HttpResponse<Void> response = httpClient.send(
+                    upload(UUID.randomUUID(), settings.imagesPerParent()),
+                    HttpResponse.BodyHandlers.discarding()
+            );
+            if (response.statusCode() >= 400) {
+                throw new IllegalStateException("Seed upload failed with status " + response.statusCode());
+            }
+        }
+        List<Image> images = imageRepository.findAll();
+        imageIds = images.stream().map(Image::getId).toList();
+        parentIds = images.stream().map(Image::getParentEntityId).distinct().toList();
+    }
+
+    /**
+     * Ожидание пула соединений меряется только на интервале измерения, как и задержки
+     */
+    public LoadReport run(PoolWaitMonitor poolWaitMonitor) throws InterruptedException {
+        long warmupEnd = System.nanoTime() + settings.warmup().toNanos();
+        long end = warmupEnd + settings.duration().toNanos();
+        long measurementStart;
+
+        log.info("Running {} workers: warmup {}, measurement {}, mix {}",
+                settings.concurrency(), settings.warmup(), settings.duration(), settings.mix());
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < settings.concurrency(); i++) {
+                workers.submit(() -> work(end));
+            }
+            TimeUnit.NANOSECONDS.sleep(warmupEnd - System.nanoTime());
+            recorders.values().forEach(Recorder::reset);
+            errors.values().forEach(LongAdder::reset);
+            poolWaitMonitor.start();
+            measurementStart = System.nanoTime();
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - measurementStart);
+        PoolWaitMonitor.Result poolWait = poolWaitMonitor.stop();
+
+        Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        recorders.forEach((operation, recorder) -> histograms.put(operation, recorder.getIntervalHistogram()));
+        Map<Operation, Long> errorCounts = errors.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+        return new LoadReport(histograms, errorCounts, elapsed, poolWait);
+    }
+
+    private Void work(long end) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            Operation operation = nextOperation(random);
+            HttpRequest request = request(operation, random);
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 400) {
+                    errors.get(operation).increment();
+                } else {
+                    recorders.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                }
+            } catch (IOException e) {
+                log.debug("{} failed: {}", operation, e.getMessage());
+                errors.get(operation).increment();
+            }
+        }
+        return null;
+    }
+
+    private Operation nextOperation(ThreadLocalRandom random) {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private HttpRequest request(Operation operation, ThreadLocalRandom random) {
+        return switch (operation) {
+            case UPLOAD -> upload(UUID.randomUUID(), 1);
+            case GET_BY_ID -> get("/id?id=" + imageIds.get(random.nextInt(imageIds.size())));
+            case PARENT_MANY -> get("/parent/many?size=" + settings.parentsPerManyRequest()
+                    + "&ids=" + randomParents(random).stream().map(UUID::toString).collect(Collectors.joining(",")));
+            case ICONS -> get("/icons");
+        };
+    }
+
+    private List<UUID> randomParents(ThreadLocalRandom random) {
+        List<UUID> ids = new ArrayList<>(settings.parentsPerManyRequest());
+        for (int i = 0; i < settings.parentsPerManyRequest(); i++) {
+            ids.add(parentIds.get(random.nextInt(parentIds.size())));
+        }
+        return ids;
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path)).GET().build();
+    }
+
+    private HttpRequest upload(UUID parentId, int files) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(image.length * files + 1024);
+        writePart(body, "imageType", null, "text/plain", "POST_ATTACHMENT".getBytes(StandardCharsets.UTF_8));
+        writePart(body, "parentEntityId", null, "text/plain", parentId.toString().getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < files; i++) {
+            writePart(body, "file", UUID.randomUUID() + ".png", "image/png", image);
+        }
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        return HttpRequest.newBuilder(baseUri)
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private static void writePart(ByteArrayOutputStream body, String name, String filename,
+                                  String contentType, byte[] content) {
+        String header = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\""
+                + (filename != null ? "; filename=\"" + filename + "\"" : "") + "\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n";
+        body.writeBytes(header.getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(content);
+        body.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * PNG из случайного шума почти не сжимается, поэтому сторона подбирается так, чтобы файл был около targetBytes
+     */
+    private static byte[] randomPng(long targetBytes) {
+        int side = Math.max(1, (int) Math.sqrt(targetBytes / 3.0));
+        BufferedImage noise = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                noise.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(noise, "png", png);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return png.toByteArray();
+    }
+
+}
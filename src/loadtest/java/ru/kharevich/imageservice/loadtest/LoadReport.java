@@ -0,0 +1,73 @@
+package ru.kharevich.imageservice.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Итог прогона: пропускная способность и перцентили задержки по операциям и суммарно, ожидание пула соединений БД.
+ * Гистограммы сохраняются в формате .hgrm (HdrHistogram), их можно сравнивать между прогонами
+ */
+public record LoadReport(
+
+        Map<Operation, Histogram> histograms,
+
+        Map<Operation, Long> errors,
+
+        Duration elapsed,
+
+        PoolWaitMonitor.Result poolWait
+
+) {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private static final String ROW_FORMAT = "%-12s %10s %8s %10s %9s %9s %9s %9s%n";
+
+    public void print(PrintStream out) {
+        out.printf(ROW_FORMAT, "operation", "requests", "errors", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+            long operationErrors = errors.getOrDefault(entry.getKey(), 0L);
+            printRow(out, entry.getKey().getKey(), entry.getValue(), operationErrors);
+            total.add(entry.getValue());
+            totalErrors += operationErrors;
+        }
+        printRow(out, "total", total, totalErrors);
+        poolWait.print(out);
+    }
+
+    public void writeHistograms(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+            Path file = directory.resolve(entry.getKey().getKey() + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                entry.getValue().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+    }
+
+    private void printRow(PrintStream out, String name, Histogram histogram, long errorCount) {
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        out.printf(ROW_FORMAT,
+                name,
+                histogram.getTotalCount(),
+                errorCount,
+                "%.1f".formatted(histogram.getTotalCount() / seconds),
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static String millis(long micros) {
+        return "%.2f".formatted(micros / MICROS_PER_MILLI);
+    }
+
+}
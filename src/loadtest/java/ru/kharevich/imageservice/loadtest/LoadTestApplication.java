@@ -0,0 +1,74 @@
+package ru.kharevich.imageservice.loadtest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import ru.kharevich.imageservice.ImageServiceApplication;
+import ru.kharevich.imageservice.repository.ImageRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * Нагрузочный прогон без внешней инфраструктуры: поднимает S3StubServer, Postgres (встроенный или --db-url)
+ * и ImageServiceApplication с профилями dev,loadtest, наполняет данными и гоняет LoadDriver.
+ * Запуск: mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--concurrency=64 --duration=2m"
+ */
+@Slf4j
+public class LoadTestApplication {
+
+    private static final String BUCKET_NAME = "loadtest-images";
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.parse(args);
+
+        EmbeddedPostgres postgres = settings.dbUrl() == null ? EmbeddedPostgres.start() : null;
+        try (S3StubServer s3 = S3StubServer.start(settings.s3Latency())) {
+            s3.createBucket(BUCKET_NAME);
+            uploadIcons(s3);
+
+            String dbUrl = postgres != null ? postgres.getJdbcUrl("postgres", "postgres") : settings.dbUrl();
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ImageServiceApplication.class)
+                    .run(
+                            "--spring.profiles.active=dev,loadtest",
+                            "--spring.datasource.url=" + dbUrl,
+                            "--spring.datasource.username=" + settings.dbUsername(),
+                            "--spring.datasource.password=" + settings.dbPassword(),
+                            "--app.s3.endpoint=" + s3.endpoint(),
+                            "--app.s3.bucket-name=" + BUCKET_NAME
+                    )) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                LoadDriver driver = new LoadDriver(URI.create("http://localhost:" + port + "/api/v1/images"), settings);
+                driver.seed(context.getBean(ImageRepository.class));
+
+                LoadReport report = driver.run(new PoolWaitMonitor(context.getBean(MeterRegistry.class)));
+                report.print(System.out);
+                report.writeHistograms(Path.of(settings.reportDirectory()));
+                log.info("Histograms written to {}", settings.reportDirectory());
+            }
+        } finally {
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+    }
+
+    /**
+     * Иконки в S3 обычно кладёт init-скрипт LocalStack, здесь они берутся из classpath:icons
+     */
+    private static void uploadIcons(S3StubServer s3) throws IOException {
+        for (Resource icon : new PathMatchingResourcePatternResolver().getResources("classpath:icons/*.svg")) {
+            try (InputStream content = icon.getInputStream()) {
+                s3.putObject(BUCKET_NAME, "icons/" + icon.getFilename(), content.readAllBytes(), "image/svg+xml");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package ru.kharevich.imageservice.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Параметры прогона, задаются аргументами вида --concurrency=64 --mix=upload:5,getById:60,parentMany:25,icons:10
+ */
+public record LoadTestSettings(
+
+        int concurrency,
+
+        Duration warmup,
+
+        Duration duration,
+
+        Map<Operation, Integer> mix,
+
+        int parents,
+
+        int imagesPerParent,
+
+        int parentsPerManyRequest,
+
+        DataSize imageSize,
+
+        Duration s3Latency,
+
+        String dbUrl,
+
+        String dbUsername,
+
+        String dbPassword,
+
+        String reportDirectory
+
+) {
+
+    private static final String DEFAULT_MIX = "upload:5,getById:60,parentMany:25,icons:10";
+
+    public static LoadTestSettings parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            String[] pair = arg.substring(2).split("=", 2);
+            values.put(pair[0], pair[1]);
+        }
+
+        return new LoadTestSettings(
+                Integer.parseInt(values.getOrDefault("concurrency", "32")),
+                DurationStyle.detectAndParse(values.getOrDefault("warmup", "10s")),
+                DurationStyle.detectAndParse(values.getOrDefault("duration", "60s")),
+                parseMix(values.getOrDefault("mix", DEFAULT_MIX)),
+                Integer.parseInt(values.getOrDefault("parents", "200")),
+                Integer.parseInt(values.getOrDefault("images-per-parent", "3")),
+                Integer.parseInt(values.getOrDefault("parents-per-many-request", "10")),
+                DataSize.parse(values.getOrDefault("image-size", "64KB")),
+                DurationStyle.detectAndParse(values.getOrDefault("s3-latency", "0ms")),
+                values.get("db-url"),
+                values.getOrDefault("db-username", "postgres"),
+                values.getOrDefault("db-password", "postgres"),
+                values.getOrDefault("report-directory", "target/loadtest")
+        );
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split(":", 2);
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.fromKey(pair[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Load mix has no operations: " + mix);
+        }
+        return weights;
+    }
+
+}
@@ -0,0 +1,29 @@
+package ru.kharevich.imageservice.loadtest;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+@Getter
+@RequiredArgsConstructor
+public enum Operation {
+
+    UPLOAD("upload"),
+
+    GET_BY_ID("getById"),
+
+    PARENT_MANY("parentMany"),
+
+    ICONS("icons");
+
+    private final String key;
+
+    public static Operation fromKey(String key) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation: " + key));
+    }
+
+}
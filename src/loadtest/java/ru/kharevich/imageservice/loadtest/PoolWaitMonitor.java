@@ -0,0 +1,101 @@
+package ru.kharevich.imageservice.loadtest;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ожидание соединения из пула Hikari за время измерения: разница hikaricp.connections.acquire между началом
+ * и концом прогона и выборка hikaricp.connections.pending раз в sample-interval (среднее и максимум)
+ */
+public class PoolWaitMonitor {
+
+    private static final String ACQUIRE_TIMER = "hikaricp.connections.acquire";
+
+    private static final String PENDING_GAUGE = "hikaricp.connections.pending";
+
+    private static final Duration SAMPLE_INTERVAL = Duration.ofMillis(20);
+
+    private final MeterRegistry meterRegistry;
+
+    private long startCount;
+
+    private double startTotalNanos;
+
+    private Thread sampler;
+
+    private volatile boolean sampling;
+
+    private long samples;
+
+    private double pendingSum;
+
+    private double pendingMax;
+
+    public PoolWaitMonitor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void start() {
+        Timer acquire = acquireTimer();
+        startCount = acquire.count();
+        startTotalNanos = acquire.totalTime(TimeUnit.NANOSECONDS);
+        sampling = true;
+        sampler = Thread.ofPlatform().daemon().name("pool-wait-sampler").start(this::sample);
+    }
+
+    public Result stop() throws InterruptedException {
+        sampling = false;
+        sampler.join();
+        Timer acquire = acquireTimer();
+        long count = acquire.count() - startCount;
+        double totalNanos = acquire.totalTime(TimeUnit.NANOSECONDS) - startTotalNanos;
+        return new Result(
+                count,
+                count == 0 ? 0 : totalNanos / count / 1_000_000,
+                samples == 0 ? 0 : pendingSum / samples,
+                pendingMax);
+    }
+
+    private void sample() {
+        Gauge pending = meterRegistry.get(PENDING_GAUGE).gauge();
+        while (sampling) {
+            double value = pending.value();
+            samples++;
+            pendingSum += value;
+            pendingMax = Math.max(pendingMax, value);
+            try {
+                Thread.sleep(SAMPLE_INTERVAL);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private Timer acquireTimer() {
+        return meterRegistry.get(ACQUIRE_TIMER).timer();
+    }
+
+    public record Result(
+
+            long acquisitions,
+
+            double meanAcquireMillis,
+
+            double meanPending,
+
+            double maxPending
+
+    ) {
+
+        public void print(PrintStream out) {
+            out.printf("pool wait: %d acquisitions, mean acquire %.3f ms, pending mean %.2f max %.0f%n",
+                    acquisitions, meanAcquireMillis, meanPending, maxPending);
+        }
+    }
+
+}
@@ -0,0 +1,404 @@
+package ru.kharevich.imageservice.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * S3-совместимая заглушка для нагрузочного теста: HTTP-сервер JDK, path-style адресация, объекты в памяти.
+ * Реализованы операции, которые использует сервис: ListBuckets, CreateBucket, ListObjectsV2,
+ * Put/Get (с Range)/Head/DeleteObject, DeleteObjects и multipart upload. Подписи запросов не проверяются
+ */
+@Slf4j
+public class S3StubServer implements AutoCloseable {
+
+    private static final String XML_NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+    private static final Pattern DELETE_KEY = Pattern.compile("<Key>(.*?)</Key>");
+
+    private final HttpServer server;
+
+    /**
+     * Задержка перед каждым ответом, имитирует сетевую задержку настоящего S3
+     */
+    private final Duration latency;
+
+    /**
+     * Обычные потоки, а не виртуальные: HttpServer читает тело запроса внутри synchronized (LeftOverInputStream),
+     * и на машине с одним ядром закреплённый carrier-поток блокирует виртуальные потоки самого сервиса
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final Map<String, Instant> buckets = new ConcurrentHashMap<>();
+
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    private S3StubServer(HttpServer server, Duration latency) {
+        this.server = server;
+        this.latency = latency;
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public static S3StubServer start(Duration latency) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        S3StubServer stub = new S3StubServer(server, latency);
+        server.start();
+        log.info("S3 stub started on {}", stub.endpoint());
+        return stub;
+    }
+
+    public URI endpoint() {
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    public void createBucket(String bucket) {
+        buckets.putIfAbsent(bucket, Instant.now());
+    }
+
+    public void putObject(String bucket, String key, byte[] content, String contentType) {
+        objects.put(objectId(bucket, key), new StoredObject(content, contentType, md5(content), Instant.now()));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) {
+        try (exchange) {
+            if (!latency.isZero()) {
+                Thread.sleep(latency);
+            }
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String[] segments = path.substring(1).split("/", 2);
+            String bucket = segments[0];
+            String key = segments.length > 1 ? segments[1] : "";
+
+            if (bucket.isEmpty()) {
+                listBuckets(exchange);
+            } else if (key.isEmpty()) {
+                handleBucket(exchange, bucket, query);
+            } else {
+                handleObject(exchange, bucket, key, query);
+            }
+        } catch (Exception e) {
+            log.error("S3 stub failed to handle {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            if (exchange.getResponseCode() == -1) {
+                sendQuietly(exchange, 500, "InternalError", e.getMessage());
+            }
+        }
+    }
+
+    private void handleBucket(HttpExchange exchange, String bucket, Map<String, String> query) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "PUT" -> {
+                readBody(exchange);
+                createBucket(bucket);
+                sendEmpty(exchange, 200);
+            }
+            case "HEAD" -> sendEmpty(exchange, buckets.containsKey(bucket) ? 200 : 404);
+            case "GET" -> listObjects(exchange, bucket, query.getOrDefault("prefix", ""));
+            case "POST" -> {
+                if (!query.containsKey("delete")) {
+                    sendError(exchange, 501, "NotImplemented", "Unsupported bucket operation");
+                    return;
+                }
+                deleteObjects(exchange, bucket);
+            }
+            case "DELETE" -> {
+                buckets.remove(bucket);
+                sendEmpty(exchange, 204);
+            }
+            default -> sendError(exchange, 405, "MethodNotAllowed", exchange.getRequestMethod());
+        }
+    }
+
+    private void handleObject(HttpExchange exchange, String bucket, String key, Map<String, String> query) throws IOException {
+        String uploadId = query.get("uploadId");
+        switch (exchange.getRequestMethod()) {
+            case "PUT" -> {
+                byte[] content = readBody(exchange);
+                String etag = md5(content);
+                if (uploadId != null) {
+                    uploads.get(uploadId).put(Integer.parseInt(query.get("partNumber")), content);
+                } else {
+                    String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+                    objects.put(objectId(bucket, key), new StoredObject(content, contentType, etag, Instant.now()));
+                }
+                exchange.getResponseHeaders().set("ETag", quote(etag));
+                sendEmpty(exchange, 200);
+            }
+            case "POST" -> {
+                readBody(exchange);
+                if (query.containsKey("uploads")) {
+                    String newUploadId = UUID.randomUUID().toString();
+                    uploads.put(newUploadId, new ConcurrentHashMap<>());
+                    sendXml(exchange, 200, "<InitiateMultipartUploadResult xmlns=\"" + XML_NAMESPACE + "\">"
+                            + "<Bucket>" + escape(bucket) + "</Bucket><Key>" + escape(key) + "</Key>"
+                            + "<UploadId>" + newUploadId + "</UploadId></InitiateMultipartUploadResult>");
+                } else if (uploadId != null) {
+                    completeUpload(exchange, bucket, key, uploadId);
+                } else {
+                    sendError(exchange, 501, "NotImplemented", "Unsupported object operation");
+                }
+            }
+            case "GET" -> getObject(exchange, bucket, key);
+            case "HEAD" -> headObject(exchange, bucket, key);
+            case "DELETE" -> {
+                if (uploadId != null) {
+                    uploads.remove(uploadId);
+                } else {
+                    objects.remove(objectId(bucket, key));
+                }
+                sendEmpty(exchange, 204);
+            }
+            default -> sendError(exchange, 405, "MethodNotAllowed", exchange.getRequestMethod());
+        }
+    }
+
+    private void listBuckets(HttpExchange exchange) throws IOException {
+        StringBuilder xml = new StringBuilder("<ListAllMyBucketsResult xmlns=\"" + XML_NAMESPACE + "\">"
+                + "<Owner><ID>stub</ID><DisplayName>stub</DisplayName></Owner><Buckets>");
+        buckets.forEach((name, createdAt) -> xml.append("<Bucket><Name>").append(escape(name))
+                .append("</Name><CreationDate>").append(createdAt).append("</CreationDate></Bucket>"));
+        xml.append("</Buckets></ListAllMyBucketsResult>");
+        sendXml(exchange, 200, xml.toString());
+    }
+
+    private void listObjects(HttpExchange exchange, String bucket, String prefix) throws IOException {
+        String bucketPrefix = objectId(bucket, prefix);
+        Map<String, StoredObject> matched = new TreeMap<>();
+        objects.forEach((id, object) -> {
+            if (id.startsWith(bucketPrefix)) {
+                matched.put(id.substring(bucket.length() + 1), object);
+            }
+        });
+
+        StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"" + XML_NAMESPACE + "\">"
+                + "<Name>" + escape(bucket) + "</Name><Prefix>" + escape(prefix) + "</Prefix>"
+                + "<KeyCount>" + matched.size() + "</KeyCount><MaxKeys>1000</MaxKeys><IsTruncated>false</IsTruncated>");
+        matched.forEach((key, object) -> xml.append("<Contents><Key>").append(escape(key))
+                .append("</Key><LastModified>").append(object.lastModified())
+                .append("</LastModified><ETag>").append(escape(quote(object.etag())))
+                .append("</ETag><Size>").append(object.content().length)
+                .append("</Size><StorageClass>STANDARD</StorageClass></Contents>"));
+        xml.append("</ListBucketResult>");
+        sendXml(exchange, 200, xml.toString());
+    }
+
+    private void deleteObjects(HttpExchange exchange, String bucket) throws IOException {
+        String body = new String(readBody(exchange), StandardCharsets.UTF_8);
+        StringBuilder xml = new StringBuilder("<DeleteResult xmlns=\"" + XML_NAMESPACE + "\">");
+        Matcher matcher = DELETE_KEY.matcher(body);
+        while (matcher.find()) {
+            String key = unescape(matcher.group(1));
+            objects.remove(objectId(bucket, key));
+            xml.append("<Deleted><Key>").append(escape(key)).append("</Key></Deleted>");
+        }
+        xml.append("</DeleteResult>");
+        sendXml(exchange, 200, xml.toString());
+    }
+
+    private void completeUpload(HttpExchange exchange, String bucket, String key, String uploadId) throws IOException {
+        Map<Integer, byte[]> parts = uploads.remove(uploadId);
+        if (parts == null) {
+            sendError(exchange, 404, "NoSuchUpload", uploadId);
+            return;
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        new TreeMap<>(parts).values().forEach(content::writeBytes);
+        String etag = md5(content.toByteArray()) + "-" + parts.size();
+        objects.put(objectId(bucket, key), new StoredObject(content.toByteArray(), null, etag, Instant.now()));
+        sendXml(exchange, 200, "<CompleteMultipartUploadResult xmlns=\"" + XML_NAMESPACE + "\">"
+                + "<Bucket>" + escape(bucket) + "</Bucket><Key>" + escape(key) + "</Key>"
+                + "<ETag>" + escape(quote(etag)) + "</ETag></CompleteMultipartUploadResult>");
+    }
+
+    private void getObject(HttpExchange exchange, String bucket, String key) throws IOException {
+        StoredObject object = objects.get(objectId(bucket, key));
+        if (object == null) {
+            sendError(exchange, 404, "NoSuchKey", "The specified key does not exist.");
+            return;
+        }
+        byte[] content = object.content();
+        int start = 0;
+        int end = content.length - 1;
+        int status = 200;
+
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-", 2);
+            start = Integer.parseInt(bounds[0]);
+            if (!bounds[1].isEmpty()) {
+                end = Math.min(end, Integer.parseInt(bounds[1]));
+            }
+            if (start > end) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + content.length);
+                sendError(exchange, 416, "InvalidRange", "The requested range is not satisfiable");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Range", "bytes %d-%d/%d".formatted(start, end, content.length));
+            status = 206;
+        }
+
+        writeObjectHeaders(exchange, object);
+        int length = end - start + 1;
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(content, start, length);
+        }
+    }
+
+    private void headObject(HttpExchange exchange, String bucket, String key) throws IOException {
+        StoredObject object = objects.get(objectId(bucket, key));
+        if (object == null) {
+            sendEmpty(exchange, 404);
+            return;
+        }
+        writeObjectHeaders(exchange, object);
+        exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.content().length));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void writeObjectHeaders(HttpExchange exchange, StoredObject object) {
+        exchange.getResponseHeaders().set("ETag", quote(object.etag()));
+        exchange.getResponseHeaders().set("Last-Modified",
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(object.lastModified().atOffset(ZoneOffset.UTC)));
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        exchange.getResponseHeaders().set("Content-Type",
+                object.contentType() != null ? object.contentType() : "application/octet-stream");
+    }
+
+    /**
+     * Тело запроса; при aws-chunked (STREAMING-подпись SDK поверх http) снимает chunk-заголовки
+     */
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        byte[] raw = exchange.getRequestBody().readAllBytes();
+        String contentSha256 = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        boolean chunked = (contentSha256 != null && contentSha256.startsWith("STREAMING-"))
+                || (contentEncoding != null && contentEncoding.contains("aws-chunked"));
+        return chunked ? decodeAwsChunked(raw) : raw;
+    }
+
+    private static byte[] decodeAwsChunked(byte[] raw) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream(raw.length);
+        int position = 0;
+        while (position < raw.length) {
+            int lineEnd = position;
+            while (raw[lineEnd] != '\r' || raw[lineEnd + 1] != '\n') {
+                lineEnd++;
+            }
+            String header = new String(raw, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int size = Integer.parseInt(header.split(";", 2)[0].trim(), 16);
+            position = lineEnd + 2;
+            if (size == 0) {
+                break;
+            }
+            content.write(raw, position, size);
+            position += size + 2;
+        }
+        return content.toByteArray();
+    }
+
+    private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static void sendXml(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] body = xml.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            sendEmpty(exchange, status);
+            return;
+        }
+        sendXml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + escape(String.valueOf(message))
+                + "</Message></Error>");
+    }
+
+    private static void sendQuietly(HttpExchange exchange, int status, String code, String message) {
+        try {
+            sendError(exchange, status, code, message);
+        } catch (IOException e) {
+            log.debug("S3 stub could not send error response: {}", e.getMessage());
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            String[] pair = parameter.split("=", 2);
+            query.put(URLDecoder.decode(pair[0], StandardCharsets.UTF_8),
+                    pair.length > 1 ? URLDecoder.decode(pair[1], StandardCharsets.UTF_8) : "");
+        }
+        return query;
+    }
+
+    private static String objectId(String bucket, String key) {
+        return bucket + "/" + key;
+    }
+
+    private static String md5(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String quote(String etag) {
+        return "\"" + etag + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String unescape(String value) {
+        return value.replace("&quot;", "\"").replace("&gt;", ">").replace("&lt;", "<").replace("&amp;", "&");
+    }
+
+    private record StoredObject(byte[] content, String contentType, String etag, Instant lastModified) {
+    }
+
+}
@@ -0,0 +1,183 @@
+package ru.kharevich.imageservice.aspect;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+import ru.kharevich.imageservice.dto.request.ImageRequest;
+import ru.kharevich.imageservice.dto.response.ImageLinkResponse;
+import ru.kharevich.imageservice.dto.response.ImageResponse;
+import ru.kharevich.imageservice.dto.transferObjects.FileTransferEntity;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Таймеры Micrometer для публичных методов S3-сервисов и ImageServiceImpl.
+ * Для методов, возвращающих CompletableFuture, время считается до завершения future.
+ * Теги: operation (имя метода), outcome (success/error), exception; у S3 ещё client (sync/async), у ImageServiceImpl - image.type.
+ * Размеры загружаемых и скачиваемых объектов пишутся в image.s3.payload, по одному значению на объект.
+ * HTTP-запросы и вызовы репозиториев меряет сам Spring Boot: http.server.requests и spring.data.repository.invocations
+ */
+@Component
+@Aspect
+@RequiredArgsConstructor
+public class MetricsAspect {
+
+    public static final String S3_TIMER = "image.s3.requests";
+
+    public static final String S3_PAYLOAD = "image.s3.payload";
+
+    public static final String SERVICE_TIMER = "image.service.calls";
+
+    private static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry meterRegistry;
+
+    @Pointcut("execution(public * ru.kharevich.imageservice.service.impl.S3StorageService.*(..))")
+    public void s3Calls() {
+    }
+
+    @Pointcut("execution(public * ru.kharevich.imageservice.service.impl.S3AsyncStorageService.*(..))")
+    public void s3AsyncCalls() {
+    }
+
+    @Pointcut("execution(public * ru.kharevich.imageservice.service.impl.ImageServiceImpl.*(..))")
+    public void imageServiceCalls() {
+    }
+
+    @Around("s3Calls()")
+    public Object timeS3Call(ProceedingJoinPoint joinPoint) throws Throwable {
+        return timeS3(joinPoint, "sync");
+    }
+
+    @Around("s3AsyncCalls()")
+    public Object timeS3AsyncCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        return timeS3(joinPoint, "async");
+    }
+
+    @Around("imageServiceCalls()")
+    public Object timeImageServiceCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        Tags tags = Tags.of("operation", joinPoint.getSignature().getName());
+        String requestImageType = imageType(joinPoint.getArgs());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return proceed(joinPoint, (result, error) -> {
+            String imageType = requestImageType != null ? requestImageType : imageType(result);
+            sample.stop(timer(SERVICE_TIMER, tags.and("image.type", imageType != null ? imageType : UNKNOWN), error));
+        });
+    }
+
+    private Object timeS3(ProceedingJoinPoint joinPoint, String client) throws Throwable {
+        Tags tags = Tags.of("operation", joinPoint.getSignature().getName(), "client", client);
+        for (Object arg : joinPoint.getArgs()) {
+            recordPayload(arg, tags.and("direction", "upload"));
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return proceed(joinPoint, (result, error) -> {
+            sample.stop(timer(S3_TIMER, tags, error));
+            if (error == null) {
+                recordPayload(result, tags.and("direction", "download"));
+            }
+        });
+    }
+
+    /**
+     * Вызывает метод и передаёт в onComplete результат или ошибку; для CompletableFuture - после его завершения.
+     * Наружу отдаётся исходный future, а не whenComplete-производный, чтобы не менять семантику отмены
+     */
+    private static Object proceed(ProceedingJoinPoint joinPoint, BiConsumer<Object, Throwable> onComplete) throws Throwable {
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            onComplete.accept(null, e);
+            throw e;
+        }
+        if (result instanceof CompletableFuture<?> future) {
+            future.whenComplete((value, error) -> onComplete.accept(value, unwrap(error)));
+        } else {
+            onComplete.accept(result, null);
+        }
+        return result;
+    }
+
+    private Timer timer(String name, Tags tags, Throwable error) {
+        return Timer.builder(name)
+                .tags(tags)
+                .tag("outcome", error == null ? "success" : "error")
+                .tag("exception", error == null ? "none" : error.getClass().getSimpleName())
+                .register(meterRegistry);
+    }
+
+    private void recordPayload(Object value, Tags tags) {
+        if (value instanceof Collection<?> values) {
+            values.forEach(item -> recordPayload(item, tags));
+            return;
+        }
+        long size = payloadSize(value);
+        if (size >= 0) {
+            DistributionSummary.builder(S3_PAYLOAD)
+                    .baseUnit(BaseUnits.BYTES)
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(size);
+        }
+    }
+
+    /**
+     * Размер объекта в байтах или -1, если значение не является содержимым объекта
+     */
+    private static long payloadSize(Object value) {
+        if (value instanceof byte[] content) {
+            return content.length;
+        }
+        if (value instanceof MultipartFile file) {
+            return file.getSize();
+        }
+        if (value instanceof FileTransferEntity entity && entity.file() != null) {
+            return entity.file().length;
+        }
+        if (value instanceof ResponseInputStream<?> stream
+                && stream.response() instanceof GetObjectResponse response
+                && response.contentLength() != null) {
+            return response.contentLength();
+        }
+        return -1;
+    }
+
+    private static String imageType(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof ImageRequest request && request.imageType() != null) {
+                return request.imageType().name();
+            }
+        }
+        return null;
+    }
+
+    private static String imageType(Object result) {
+        if (result instanceof ImageResponse response && response.imageType() != null) {
+            return response.imageType().name();
+        }
+        if (result instanceof ImageLinkResponse response && response.imageType() != null) {
+            return response.imageType().name();
+        }
+        return null;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+}
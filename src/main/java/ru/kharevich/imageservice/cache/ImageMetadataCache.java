@@ -0,0 +1,274 @@
+package ru.kharevich.imageservice.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.kharevich.imageservice.model.Image;
+import ru.kharevich.imageservice.util.properties.MetadataCacheProperties;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Общий для всех реплик кэш метаданных Image в Redis (подходит любой сервер с протоколом Redis)
+ * и near-кэш Caffeine на каждом узле. Ключи: id:{id}, key:{objectKey} (поиск по url), parent:{parentEntityId}.
+ * При инвалидации ключи удаляются из Redis, а остальные узлы сбрасывают near-кэш по сообщению в app.cache.metadata.invalidation-channel.
+ * Внутри транзакции инвалидация выполняется после коммита; если сообщение потерялось или чтение обогнало удаление,
+ * устаревшее значение живёт не дольше near-cache-ttl и ttl.
+ * Ошибки Redis не ломают запросы: значение читается из БД
+ */
+@Slf4j
+@Component
+public class ImageMetadataCache implements MessageListener {
+
+    private static final String CACHE_NAME = "image-metadata";
+
+    private final Cache<String, Object> nearCache;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final MetadataCacheProperties properties;
+
+    private final JavaType imageType;
+
+    private final JavaType imageListType;
+
+    private final JavaType keyListType;
+
+    public ImageMetadataCache(MetadataCacheProperties properties,
+                              StringRedisTemplate redisTemplate,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.imageType = objectMapper.getTypeFactory().constructType(Image.class);
+        this.imageListType = objectMapper.getTypeFactory().constructCollectionType(List.class, Image.class);
+        this.keyListType = objectMapper.getTypeFactory().constructCollectionType(List.class, String.class);
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(properties.getNearCacheMaxSize())
+                .expireAfterWrite(properties.getNearCacheTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, nearCache, CACHE_NAME);
+    }
+
+    /**
+     * Исключение из loader пробрасывается как есть, отсутствие записи не кэшируется
+     */
+    public Image getById(UUID id, Supplier<Image> loader) {
+        return get(idKey(id), imageType, loader);
+    }
+
+    public Image getByObjectKey(String objectKey, Supplier<Image> loader) {
+        return get(objectKeyKey(objectKey), imageType, loader);
+    }
+
+    public List<Image> getByParentId(UUID parentId, Supplier<List<Image>> loader) {
+        return get(parentKey(parentId), imageListType, loader);
+    }
+
+    /**
+     * Пакетный вариант getByParentId: near-кэш, затем один MGET в Redis, затем один вызов loader
+     * для оставшихся parentId. Родители без изображений в результат не попадают
+     */
+    @SuppressWarnings("unchecked")
+    public Map<UUID, List<Image>> getByParentIds(List<UUID> parentIds,
+                                                 Function<List<UUID>, Map<UUID, List<Image>>> loader) {
+        if (!properties.isEnabled()) {
+            return loader.apply(parentIds);
+        }
+        Map<UUID, List<Image>> result = new LinkedHashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID parentId : parentIds) {
+            List<Image> cached = (List<Image>) nearCache.getIfPresent(parentKey(parentId));
+            if (cached != null) {
+                result.put(parentId, cached);
+            } else {
+                missing.add(parentId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        List<Object> remote = readAll(missing.stream().map(this::parentKey).toList(), imageListType);
+        List<UUID> notCached = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i++) {
+            if (remote.get(i) != null) {
+                result.put(missing.get(i), (List<Image>) remote.get(i));
+                nearCache.put(parentKey(missing.get(i)), remote.get(i));
+            } else {
+                notCached.add(missing.get(i));
+            }
+        }
+        if (notCached.isEmpty()) {
+            return result;
+        }
+
+        Map<UUID, List<Image>> loaded = loader.apply(notCached);
+        Map<String, Object> toWrite = new LinkedHashMap<>();
+        loaded.forEach((parentId, images) -> {
+            result.put(parentId, images);
+            if (!images.isEmpty()) {
+                nearCache.put(parentKey(parentId), images);
+                toWrite.put(parentKey(parentId), images);
+            }
+        });
+        writeAll(toWrite);
+        return result;
+    }
+
+    /**
+     * Удаляет ключи из Redis и near-кэшей всех узлов. Если есть активная транзакция - после её коммита,
+     * иначе соседний узел успел бы прочитать из БД ещё не удалённые строки и вернуть их в кэш
+     */
+    public void evict(Collection<UUID> ids, Collection<String> objectKeys, Collection<UUID> parentIds) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<String> keys = Stream.of(
+                        ids.stream().map(this::idKey),
+                        objectKeys.stream().map(this::objectKeyKey),
+                        parentIds.stream().map(this::parentKey))
+                .flatMap(Function.identity())
+                .distinct()
+                .toList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(keys);
+                }
+            });
+        } else {
+            evictNow(keys);
+        }
+    }
+
+    /**
+     * Сообщение об инвалидации от любого узла, включая этот
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            List<String> keys = objectMapper.readValue(message.getBody(), keyListType);
+            nearCache.invalidateAll(keys);
+        } catch (IOException e) {
+            log.warn("Malformed metadata invalidation message: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(String key, JavaType type, Supplier<T> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+        T value = (T) nearCache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        value = (T) readAll(List.of(key), type).getFirst();
+        if (value == null) {
+            value = loader.get();
+            if (value instanceof Collection<?> values && values.isEmpty()) {
+                return value;
+            }
+            writeAll(Map.of(key, value));
+        }
+        nearCache.put(key, value);
+        return value;
+    }
+
+    /**
+     * Значения в порядке ключей, null для отсутствующих. При недоступном Redis все значения null
+     */
+    private List<Object> readAll(List<String> keys, JavaType type) {
+        List<Object> values = new ArrayList<>(keys.size());
+        try {
+            List<String> json = redisTemplate.opsForValue().multiGet(keys);
+            for (int i = 0; i < keys.size(); i++) {
+                String value = json != null ? json.get(i) : null;
+                values.add(value != null ? objectMapper.readValue(value, type) : null);
+            }
+            return values;
+        } catch (RuntimeException | JsonProcessingException e) {
+            log.warn("Failed to read image metadata from Redis: {}", e.getMessage());
+            return Collections.nCopies(keys.size(), null);
+        }
+    }
+
+    /**
+     * Все значения пишутся одним pipeline, у каждого свой TTL
+     */
+    private void writeAll(Map<String, Object> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        try {
+            Map<byte[], byte[]> json = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                json.put(entry.getKey().getBytes(StandardCharsets.UTF_8), objectMapper.writeValueAsBytes(entry.getValue()));
+            }
+            Expiration expiration = Expiration.from(properties.getTtl());
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                json.forEach((key, value) -> connection.stringCommands().set(key, value, expiration, SetOption.upsert()));
+                return null;
+            });
+        } catch (RuntimeException | JsonProcessingException e) {
+            log.warn("Failed to write image metadata to Redis: {}", e.getMessage());
+        }
+    }
+
+    private void evictNow(List<String> keys) {
+        nearCache.invalidateAll(keys);
+        try {
+            redisTemplate.delete(keys);
+            redisTemplate.convertAndSend(properties.getInvalidationChannel(), objectMapper.writeValueAsString(keys));
+        } catch (RuntimeException | JsonProcessingException e) {
+            log.warn("Failed to evict image metadata from Redis: {}", e.getMessage());
+        }
+    }
+
+    private String idKey(UUID id) {
+        return properties.getKeyPrefix() + "id:" + id;
+    }
+
+    private String objectKeyKey(String objectKey) {
+        return properties.getKeyPrefix() + "key:" + objectKey;
+    }
+
+    private String parentKey(UUID parentId) {
+        return properties.getKeyPrefix() + "parent:" + parentId;
+    }
+
+}
@@ -0,0 +1,71 @@
+package ru.kharevich.imageservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.kharevich.imageservice.util.properties.ObjectCacheProperties;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-through кэш содержимого объектов S3 по ключу.
+ * Размер ограничен суммарным объёмом в байтах, вытеснение - W-TinyLFU (Caffeine).
+ * Содержимое хранится в direct-буферах, поэтому кэш не раздувает old generation
+ */
+@Slf4j
+@Component
+public class S3ObjectCache {
+
+    private static final String CACHE_NAME = "s3-objects";
+
+    private final Cache<String, ByteBuffer> cache;
+
+    private final ObjectCacheProperties properties;
+
+    public S3ObjectCache(ObjectCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxSize().toBytes())
+                .weigher((String key, ByteBuffer value) -> value.capacity())
+                .expireAfterAccess(properties.getExpireAfterAccess())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Возвращает копию закэшированного содержимого или null, если объекта нет в кэше
+     */
+    public byte[] get(String key) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        ByteBuffer buffer = cache.getIfPresent(key);
+        if (buffer == null) {
+            return null;
+        }
+        byte[] content = new byte[buffer.capacity()];
+        buffer.duplicate().get(content);
+        return content;
+    }
+
+    /**
+     * Кладёт объект в кэш, если он не больше app.cache.objects.max-entry-size
+     */
+    public void put(String key, byte[] content) {
+        if (!properties.isEnabled() || content.length > properties.getMaxEntrySize().toBytes()) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+        buffer.put(content).flip();
+        cache.put(key, buffer.asReadOnlyBuffer());
+    }
+
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+}
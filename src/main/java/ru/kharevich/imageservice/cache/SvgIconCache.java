@@ -0,0 +1,106 @@
+package ru.kharevich.imageservice.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.kharevich.imageservice.dto.transferObjects.FileTransferEntity;
+import ru.kharevich.imageservice.dto.transferObjects.IconBundle;
+import ru.kharevich.imageservice.service.impl.S3StorageService;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Набор SVG иконок в памяти. Загружается при старте и обновляется по расписанию,
+ * поэтому запросы к /icons не ходят в S3
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SvgIconCache {
+
+    private final S3StorageService s3StorageService;
+
+    private volatile IconBundle iconBundle;
+
+    /**
+     * ReentrantLock вместо synchronized: внутри идёт загрузка из S3, а монитор закрепил бы виртуальный поток
+     */
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    public IconBundle get() {
+        IconBundle current = iconBundle;
+        if (current == null) {
+            current = loadIfAbsent();
+        }
+        return current;
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.icons.refresh-interval:PT10M}",
+            fixedDelayString = "${app.icons.refresh-interval:PT10M}"
+    )
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("Failed to refresh SVG icons, keeping previous set: {}", e.getMessage());
+        }
+    }
+
+    public IconBundle refresh() {
+        refreshLock.lock();
+        try {
+            return load();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Пока первый поток загружает иконки, остальные ждут на блокировке и получают его результат, а не грузят заново
+     */
+    private IconBundle loadIfAbsent() {
+        refreshLock.lock();
+        try {
+            IconBundle current = iconBundle;
+            return current != null ? current : load();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private IconBundle load() {
+        List<FileTransferEntity> icons = s3StorageService.downloadSvgIcons()
+                .stream()
+                .sorted(Comparator.comparing(FileTransferEntity::name))
+                .toList();
+        String etag = calculateEtag(icons);
+        IconBundle previous = iconBundle;
+        if (previous == null || !previous.etag().equals(etag)) {
+            iconBundle = new IconBundle(icons, etag);
+            log.info("SVG icons loaded: {} icons, etag {}", icons.size(), etag);
+        }
+        return iconBundle;
+    }
+
+    private String calculateEtag(List<FileTransferEntity> icons) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (FileTransferEntity icon : icons) {
+                digest.update(icon.name().getBytes(StandardCharsets.UTF_8));
+                digest.update(icon.file());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package ru.kharevich.imageservice.config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import ru.kharevich.imageservice.util.properties.ImageVariantProperties;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Executor для параллельных обращений к S3.
+     * Потоки почти всё время ждут сеть, поэтому при spring.threads.virtual.enabled используются виртуальные потоки,
+     * иначе - обычные. Ограничение параллелизма задаётся на уровне запроса (app.s3.download-concurrency)
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService s3TaskExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "s3-task-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Пул для CPU-задач (ресайз изображений): потоков столько же, сколько ядер, очередь ограничена.
+     * При переполнении очереди задача отклоняется, а не выполняется в потоке запроса:
+     * ImageVariantService превращает отказ в 503 с Retry-After
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService imageProcessingExecutor(ImageVariantProperties imageVariantProperties) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(imageVariantProperties.getProcessingQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-processing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+}
@@ -0,0 +1,26 @@
+package ru.kharevich.imageservice.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.kharevich.imageservice.cache.SvgIconCache;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IconCacheInitializer {
+
+    private final SvgIconCache svgIconCache;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try {
+            svgIconCache.refresh();
+            log.info("SVG icon cache initialization completed");
+        } catch (Exception e) {
+            log.error("Failed to preload SVG icons: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.kharevich.imageservice.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import ru.kharevich.imageservice.cache.ImageMetadataCache;
+import ru.kharevich.imageservice.util.properties.MetadataCacheProperties;
+
+/**
+ * Подписка на канал инвалидации near-кэша метаданных. Без app.cache.metadata.enabled=true
+ * к Redis никто не подключается
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.cache.metadata", name = "enabled", havingValue = "true")
+public class MetadataCacheConfig {
+
+    @Bean
+    public RedisMessageListenerContainer metadataInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                               ImageMetadataCache imageMetadataCache,
+                                                                               MetadataCacheProperties properties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(imageMetadataCache, new ChannelTopic(properties.getInvalidationChannel()));
+        return container;
+    }
+
+}
@@ -1,14 +1,20 @@
 package ru.kharevich.imageservice.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import ru.kharevich.imageservice.util.metrics.S3PoolMetricPublisher;
 import ru.kharevich.imageservice.util.properties.S3Properties;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 import java.net.URI;
@@ -20,6 +26,8 @@ public class S3PresignerConfig {
 
     private final S3Properties s3Properties;
 
+    private final MeterRegistry meterRegistry;
+
     @Bean
     public S3Presigner s3Presigner() {
         return S3Presigner.builder()
@@ -31,9 +39,17 @@ public class S3PresignerConfig {
                         )
                 ))
                 .region(Region.of(s3Properties.getRegion()))
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(true) // ссылки должны совпадать по формату с s3Client
+                        .build())
                 .build();
     }
 
+    /**
+     * Apache-клиент устанавливает соединение (TCP + TLS) внутри synchronized, что закрепляет виртуальный поток
+     * за несущим. Поэтому пул держится достаточно большим (app.s3.max-connections), чтобы соединения
+     * переиспользовались и новые открывались редко
+     */
     @Bean
     public S3Client s3Client() {
         return S3Client.builder()
@@ -46,6 +62,49 @@ public class S3PresignerConfig {
                 ))
                 .region(Region.of(s3Properties.getRegion()))
                 .forcePathStyle(true) // важно для LocalStack
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(s3Properties.getMaxConnections())
+                        .connectionAcquisitionTimeout(s3Properties.getConnectionAcquisitionTimeout())
+                        .connectionTimeout(s3Properties.getConnectionTimeout())
+                        .socketTimeout(s3Properties.getSocketTimeout())
+                        .connectionTimeToLive(s3Properties.getConnectionTimeToLive())
+                        .connectionMaxIdleTime(s3Properties.getConnectionMaxIdleTime())
+                        .useIdleConnectionReaper(s3Properties.isUseIdleConnectionReaper())
+                        .tcpKeepAlive(s3Properties.isTcpKeepAlive()))
+                .overrideConfiguration(configuration -> configuration
+                        .addMetricPublisher(new S3PoolMetricPublisher(meterRegistry, "sync")))
+                .build();
+    }
+
+    /**
+     * Неблокирующий клиент на Netty: ожидание ответа S3 не занимает поток,
+     * число одновременных соединений ограничено app.s3.async-max-concurrency
+     */
+    @Bean
+    public S3AsyncClient s3AsyncClient() {
+        return S3AsyncClient.builder()
+                .endpointOverride(URI.create(s3Properties.getEndpoint()))
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(
+                                s3Properties.getAccessKey(),
+                                s3Properties.getSecretKey()
+                        )
+                ))
+                .region(Region.of(s3Properties.getRegion()))
+                .forcePathStyle(true)
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(s3Properties.getAsyncMaxConcurrency())
+                        .maxPendingConnectionAcquires(s3Properties.getAsyncMaxPendingConnectionAcquires())
+                        .connectionAcquisitionTimeout(s3Properties.getConnectionAcquisitionTimeout())
+                        .connectionTimeout(s3Properties.getConnectionTimeout())
+                        .readTimeout(s3Properties.getSocketTimeout())
+                        .writeTimeout(s3Properties.getSocketTimeout())
+                        .connectionTimeToLive(s3Properties.getConnectionTimeToLive())
+                        .connectionMaxIdleTime(s3Properties.getConnectionMaxIdleTime())
+                        .useIdleConnectionReaper(s3Properties.isUseIdleConnectionReaper())
+                        .tcpKeepAlive(s3Properties.isTcpKeepAlive()))
+                .overrideConfiguration(configuration -> configuration
+                        .addMetricPublisher(new S3PoolMetricPublisher(meterRegistry, "async")))
                 .build();
     }
 
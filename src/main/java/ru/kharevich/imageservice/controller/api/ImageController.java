@@ -2,32 +2,52 @@ package ru.kharevich.imageservice.controller.api;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.kharevich.imageservice.dto.response.ImageLinkResponse;
 import ru.kharevich.imageservice.dto.response.ImageResponse;
+import ru.kharevich.imageservice.dto.response.ImageUploadResponse;
 import ru.kharevich.imageservice.dto.response.PageableResponse;
 import ru.kharevich.imageservice.dto.transferObjects.FileTransferEntity;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface ImageController {
 
-    ImageResponse getImageById(@Valid UUID id);
+    CompletableFuture<ImageResponse> getImageById(@Valid UUID id, Integer imageSize);
 
-    PageableResponse<ImageResponse> getImagesByParent(@RequestBody List<UUID> ids,
-                                                      @RequestParam(defaultValue = "0") @Min(0) int page_number,
-                                                      @RequestParam(defaultValue = "10") int size);
+    CompletableFuture<PageableResponse<ImageResponse>> getImagesByParent(@RequestBody List<UUID> ids,
+                                                                         @RequestParam(defaultValue = "0") @Min(0) int page_number,
+                                                                         @RequestParam(defaultValue = "10") int size,
+                                                                         Integer imageSize);
 
-    ImageResponse getImageByUrl(String url);
+    CompletableFuture<ImageResponse> getImageByUrl(String url, Integer imageSize);
+
+    ImageLinkResponse getImageLinkById(@Valid UUID id, Integer imageSize);
+
+    ImageLinkResponse getImageLinksByParent(@Valid UUID id, Integer imageSize);
+
+    PageableResponse<ImageLinkResponse> getImageLinksByParents(List<UUID> ids,
+                                                               @Min(0) int page_number,
+                                                               int size,
+                                                               Integer imageSize);
+
+    ResponseEntity<StreamingResponseBody> streamImageById(@Valid UUID id, Integer imageSize, WebRequest webRequest);
+
+    ResponseEntity<StreamingResponseBody> streamImageByUrl(String url, Integer imageSize, WebRequest webRequest);
 
     void deleteImageById(@Valid UUID id);
 
-    List<FileTransferEntity> downloadSvgIcons();
+    ResponseEntity<List<FileTransferEntity>> downloadSvgIcons(WebRequest webRequest);
 
-    ImageResponse uploadImage(
+    ImageUploadResponse uploadImage(
             @RequestPart("imageType") String imageType,
             @RequestPart("parentEntityId") String parentEntityId,
             @RequestPart("file") List<MultipartFile> file);
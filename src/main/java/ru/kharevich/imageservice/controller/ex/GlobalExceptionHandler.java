@@ -1,6 +1,7 @@
 package ru.kharevich.imageservice.controller.ex;
 
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -9,10 +10,14 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.kharevich.imageservice.dto.transferObjects.ErrorMessage;
 import ru.kharevich.imageservice.exception.FileNotFoundException;
 import ru.kharevich.imageservice.exception.FileUploadException;
+import ru.kharevich.imageservice.exception.ImageProcessingRejectedException;
 import ru.kharevich.imageservice.exception.ImageNotFoundException;
 import ru.kharevich.imageservice.exception.StaticIconUploadException;
+import ru.kharevich.imageservice.exception.UnsupportedImageSizeException;
+import ru.kharevich.imageservice.exception.UploadRejectedException;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 @RestControllerAdvice
@@ -47,7 +52,8 @@ public class GlobalExceptionHandler {
 
 
     @ExceptionHandler({
-            MethodArgumentNotValidException.class
+            MethodArgumentNotValidException.class,
+            UnsupportedImageSizeException.class
     })
     public ResponseEntity<ErrorMessage> handleValidationExceptions(Exception ex) {
         String errorMessage = ex instanceof MethodArgumentNotValidException
@@ -61,6 +67,34 @@ public class GlobalExceptionHandler {
                         .build());
     }
 
+    /**
+     * 429 или 503 от допуска загрузок; Retry-After в секундах
+     */
+    @ExceptionHandler(UploadRejectedException.class)
+    public ResponseEntity<ErrorMessage> handleUploadRejected(UploadRejectedException exception) {
+        return ResponseEntity
+                .status(exception.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(exception.getRetryAfter()))
+                .body(ErrorMessage.builder()
+                        .message(exception.getMessage())
+                        .timestamp(LocalDateTime.now())
+                        .build());
+    }
+
+    /**
+     * Очередь ресайза и перекодирования переполнена
+     */
+    @ExceptionHandler(ImageProcessingRejectedException.class)
+    public ResponseEntity<ErrorMessage> handleProcessingRejected(ImageProcessingRejectedException exception) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(exception.getRetryAfter()))
+                .body(ErrorMessage.builder()
+                        .message(exception.getMessage())
+                        .timestamp(LocalDateTime.now())
+                        .build());
+    }
+
     @ExceptionHandler({
             Exception.class
     })
@@ -73,4 +107,8 @@ public class GlobalExceptionHandler {
                         .build());
     }
 
+    private static String retryAfterSeconds(Duration retryAfter) {
+        return String.valueOf(Math.max(1, retryAfter.toSeconds()));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package ru.kharevich.imageservice.controller.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import ru.kharevich.imageservice.exception.UploadRejectedException;
+import ru.kharevich.imageservice.service.impl.UploadAdmissionService;
+import ru.kharevich.imageservice.util.properties.UploadAdmissionProperties;
+
+import java.io.IOException;
+
+/**
+ * Допуск загрузок проверяется до разбора multipart: отклонённый запрос не пишется ни в память, ни на диск.
+ * Без Content-Length (chunked) загрузка считается размером spring.servlet.multipart.max-request-size.
+ * Отказ отдаётся через GlobalExceptionHandler, как и остальные ошибки
+ */
+@Component
+@RequiredArgsConstructor
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    private static final String UPLOAD_PATH = "/api/v1/images";
+
+    private final UploadAdmissionService uploadAdmissionService;
+
+    private final UploadAdmissionProperties uploadAdmissionProperties;
+
+    private final MultipartProperties multipartProperties;
+
+    @Qualifier("handlerExceptionResolver")
+    private final HandlerExceptionResolver handlerExceptionResolver;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod()) || !UPLOAD_PATH.equals(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long contentLength = request.getContentLengthLong();
+        if (contentLength < 0) {
+            contentLength = multipartProperties.getMaxRequestSize().toBytes();
+        }
+        UploadAdmissionService.Permit permit;
+        try {
+            permit = uploadAdmissionService.admit(clientId(request), contentLength);
+        } catch (UploadRejectedException e) {
+            handlerExceptionResolver.resolveException(request, response, null, e);
+            return;
+        }
+        try (permit) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private String clientId(HttpServletRequest request) {
+        String header = uploadAdmissionProperties.getClientIdHeader();
+        String clientId = header == null || header.isBlank() ? null : request.getHeader(header);
+        return clientId == null || clientId.isBlank() ? request.getRemoteAddr() : clientId;
+    }
+
+}
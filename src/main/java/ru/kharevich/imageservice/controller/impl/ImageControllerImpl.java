@@ -3,8 +3,14 @@ package ru.kharevich.imageservice.controller.impl;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -13,17 +19,29 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.kharevich.imageservice.controller.api.ImageController;
 import ru.kharevich.imageservice.dto.request.ImageRequest;
+import ru.kharevich.imageservice.dto.response.ImageLinkResponse;
 import ru.kharevich.imageservice.dto.response.ImageResponse;
+import ru.kharevich.imageservice.dto.response.ImageUploadResponse;
 import ru.kharevich.imageservice.dto.response.PageableResponse;
+import ru.kharevich.imageservice.dto.transferObjects.FileMetadata;
+import ru.kharevich.imageservice.dto.transferObjects.FileStreamEntity;
 import ru.kharevich.imageservice.dto.transferObjects.FileTransferEntity;
+import ru.kharevich.imageservice.dto.transferObjects.IconBundle;
 import ru.kharevich.imageservice.model.ImageType;
 import ru.kharevich.imageservice.service.ImageService;
+import ru.kharevich.imageservice.util.ImageTranscoder;
+import ru.kharevich.imageservice.util.properties.IconProperties;
+import ru.kharevich.imageservice.util.properties.ImageHttpProperties;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("api/v1/images")
@@ -32,30 +50,75 @@ public class ImageControllerImpl implements ImageController {
 
     private final ImageService imageService;
 
+    private final IconProperties iconProperties;
+
+    private final ImageHttpProperties imageHttpProperties;
+
     @GetMapping("/id")
     @ResponseStatus(HttpStatus.OK)
-    public ImageResponse getImageById(@RequestParam @Valid UUID id) {
-        return imageService.getById(id);
+    public CompletableFuture<ImageResponse> getImageById(@RequestParam @Valid UUID id,
+                                                         @RequestParam(name = "image_size", required = false) Integer imageSize) {
+        return imageService.getById(id, imageSize);
     }
 
     @GetMapping("/parent")
     @ResponseStatus(HttpStatus.OK)
-    public ImageResponse getImageByParent(@RequestParam @Valid UUID id) {
-        return imageService.getByParentId(id);
+    public CompletableFuture<ImageResponse> getImageByParent(@RequestParam @Valid UUID id,
+                                                             @RequestParam(name = "image_size", required = false) Integer imageSize) {
+        return imageService.getByParentId(id, imageSize);
     }
 
     @GetMapping("/parent/many")
     @ResponseStatus(HttpStatus.OK)
-    public PageableResponse<ImageResponse> getImagesByParent(@RequestParam List<UUID> ids,
-                                                             @RequestParam(defaultValue = "0") @Min(0) int page_number,
-                                                             @RequestParam(defaultValue = "10") int size) {
-        return imageService.getManyByParentId(ids, page_number, size);
+    public CompletableFuture<PageableResponse<ImageResponse>> getImagesByParent(@RequestParam List<UUID> ids,
+                                                                                @RequestParam(defaultValue = "0") @Min(0) int page_number,
+                                                                                @RequestParam(defaultValue = "10") int size,
+                                                                                @RequestParam(name = "image_size", required = false) Integer imageSize) {
+        return imageService.getManyByParentId(ids, page_number, size, imageSize);
     }
 
     @GetMapping("url")
     @ResponseStatus(HttpStatus.OK)
-    public ImageResponse getImageByUrl(@RequestParam String url) {
-        return imageService.getByUrl(url);
+    public CompletableFuture<ImageResponse> getImageByUrl(@RequestParam String url,
+                                                          @RequestParam(name = "image_size", required = false) Integer imageSize) {
+        return imageService.getByUrl(url, imageSize);
+    }
+
+    @GetMapping("/id/link")
+    @ResponseStatus(HttpStatus.OK)
+    public ImageLinkResponse getImageLinkById(@RequestParam @Valid UUID id,
+                                              @RequestParam(name = "image_size", required = false) Integer imageSize) {
+        return imageService.getLinkById(id, imageSize);
+    }
+
+    @GetMapping("/parent/link")
+    @ResponseStatus(HttpStatus.OK)
+    public ImageLinkResponse getImageLinksByParent(@RequestParam @Valid UUID id,
+                                                   @RequestParam(name = "image_size", required = false) Integer imageSize) {
+        return imageService.getLinksByParentId(id, imageSize);
+    }
+
+    @GetMapping("/parent/many/link")
+    @ResponseStatus(HttpStatus.OK)
+    public PageableResponse<ImageLinkResponse> getImageLinksByParents(@RequestParam List<UUID> ids,
+                                                                      @RequestParam(defaultValue = "0") @Min(0) int page_number,
+                                                                      @RequestParam(defaultValue = "10") int size,
+                                                                      @RequestParam(name = "image_size", required = false) Integer imageSize) {
+        return imageService.getManyLinksByParentId(ids, page_number, size, imageSize);
+    }
+
+    @GetMapping("/id/raw")
+    public ResponseEntity<StreamingResponseBody> streamImageById(@RequestParam @Valid UUID id,
+                                                                 @RequestParam(name = "image_size", required = false) Integer imageSize,
+                                                                 WebRequest webRequest) {
+        return toStreamingResponse(imageService.getMetadataById(id, imageSize, acceptsCompact(webRequest)), webRequest);
+    }
+
+    @GetMapping("/url/raw")
+    public ResponseEntity<StreamingResponseBody> streamImageByUrl(@RequestParam String url,
+                                                                  @RequestParam(name = "image_size", required = false) Integer imageSize,
+                                                                  WebRequest webRequest) {
+        return toStreamingResponse(imageService.getMetadataByUrl(url, imageSize, acceptsCompact(webRequest)), webRequest);
     }
 
     @DeleteMapping
@@ -65,9 +128,17 @@ public class ImageControllerImpl implements ImageController {
     }
 
     @GetMapping("/icons")
-    @ResponseStatus(HttpStatus.OK)
-    public List<FileTransferEntity> downloadSvgIcons() {
-        return imageService.getSvgIcons();
+    public ResponseEntity<List<FileTransferEntity>> downloadSvgIcons(WebRequest webRequest) {
+        IconBundle iconBundle = imageService.getSvgIcons();
+        CacheControl cacheControl = CacheControl.maxAge(iconProperties.getMaxAge()).cachePublic();
+        if (webRequest.checkNotModified(iconBundle.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .body(iconBundle.icons());
     }
 
     @DeleteMapping("parent")
@@ -77,7 +148,7 @@ public class ImageControllerImpl implements ImageController {
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ImageResponse uploadImage(
+    public ImageUploadResponse uploadImage(
             @RequestPart("imageType") String imageType,
             @RequestPart("parentEntityId") String parentEntityId,
             @RequestPart("file") List<MultipartFile> files) {
@@ -85,4 +156,104 @@ public class ImageControllerImpl implements ImageController {
         return imageService.save(imageRequest);
     }
 
+    /**
+     * If-None-Match / If-Modified-Since проверяются по метаданным без чтения тела объекта (304),
+     * ETag и Last-Modified в ответ выставляет сам checkNotModified.
+     * Один диапазон из Range отдаётся ranged GetObject (206), несколько диапазонов или
+     * несовпавший If-Range - целиком (200).
+     * Тело зависит от Accept (см. acceptsCompact), поэтому все ответы помечены Vary: Accept
+     */
+    private ResponseEntity<StreamingResponseBody> toStreamingResponse(FileMetadata metadata, WebRequest webRequest) {
+        CacheControl cacheControl = CacheControl.maxAge(imageHttpProperties.getMaxAge()).cachePublic();
+        if (webRequest.checkNotModified(metadata.etag(), metadata.lastModified().toEpochMilli())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .build();
+        }
+
+        HttpRange range = requestedRange(metadata, webRequest);
+        if (range == null) {
+            return toBodyResponse(ResponseEntity.ok(), imageService.stream(metadata), cacheControl);
+        }
+
+        long length = metadata.contentLength();
+        long start = -1;
+        long end = -1;
+        try {
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+        } catch (IllegalArgumentException ignored) {
+        }
+        if (start < 0 || end < start) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .build();
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes %d-%d/%d".formatted(start, end, length));
+        return toBodyResponse(builder, imageService.streamRange(metadata, start, end), cacheControl);
+    }
+
+    /**
+     * Компактную копию можно отдать, только если Accept явно перечисляет её тип с ненулевым q.
+     * Без Accept или с шаблонами вида image/* клиент мог не рассчитывать на смену формата - отдаётся оригинал,
+     * как и при некорректном Accept
+     */
+    private boolean acceptsCompact(WebRequest webRequest) {
+        String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return false;
+        }
+        MediaType compactType = MediaType.parseMediaType(ImageTranscoder.COMPACT_CONTENT_TYPE);
+        try {
+            return MediaType.parseMediaTypes(accept).stream()
+                    .anyMatch(type -> type.equalsTypeAndSubtype(compactType) && type.getQualityValue() > 0);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private HttpRange requestedRange(FileMetadata metadata, WebRequest webRequest) {
+        String rangeHeader = webRequest.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+        String ifRange = webRequest.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(metadata.etag())) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.getFirst() : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> toBodyResponse(ResponseEntity.BodyBuilder builder,
+                                                                 FileStreamEntity file,
+                                                                 CacheControl cacheControl) {
+        StreamingResponseBody body = outputStream -> {
+            try (InputStream content = file.content()) {
+                content.transferTo(outputStream);
+            }
+        };
+        MediaType contentType = file.contentType() != null
+                ? MediaType.parseMediaType(file.contentType())
+                : MediaType.APPLICATION_OCTET_STREAM;
+        return builder
+                .contentType(contentType)
+                .contentLength(file.contentLength())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                        .filename(file.name())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
 }
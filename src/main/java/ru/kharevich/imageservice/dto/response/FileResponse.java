@@ -1,12 +1,18 @@
 package ru.kharevich.imageservice.dto.response;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-
-@AllArgsConstructor
-public class FileResponse {
-    private String filename;
-    private String url;
-    private Long size;
-    private String contentType;
-}
\ No newline at end of file
+import java.util.UUID;
+
+public record FileResponse(
+
+        UUID id,
+
+        String filename,
+
+        String url,
+
+        Long size,
+
+        String contentType
+
+) {
+}
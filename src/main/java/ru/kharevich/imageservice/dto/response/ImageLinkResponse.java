@@ -0,0 +1,18 @@
+package ru.kharevich.imageservice.dto.response;
+
+import ru.kharevich.imageservice.dto.transferObjects.FileLinkEntity;
+import ru.kharevich.imageservice.model.ImageType;
+
+import java.util.List;
+import java.util.UUID;
+
+public record ImageLinkResponse(
+
+        ImageType imageType,
+
+        List<FileLinkEntity> files,
+
+        UUID parentId
+
+) {
+}
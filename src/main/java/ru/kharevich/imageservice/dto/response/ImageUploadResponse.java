@@ -0,0 +1,17 @@
+package ru.kharevich.imageservice.dto.response;
+
+import ru.kharevich.imageservice.model.ImageType;
+
+import java.util.List;
+import java.util.UUID;
+
+public record ImageUploadResponse(
+
+        ImageType imageType,
+
+        List<FileResponse> files,
+
+        UUID parentId
+
+) {
+}
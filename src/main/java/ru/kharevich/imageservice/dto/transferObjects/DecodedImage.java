@@ -0,0 +1,9 @@
+package ru.kharevich.imageservice.dto.transferObjects;
+
+import java.awt.image.BufferedImage;
+
+public record DecodedImage(
+        BufferedImage image,
+        String format
+) {
+}
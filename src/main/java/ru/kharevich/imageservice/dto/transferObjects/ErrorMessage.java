@@ -1,11 +1,12 @@
 package ru.kharevich.imageservice.dto.transferObjects;
 
 import lombok.Builder;
-import lombok.Data;
+import lombok.Getter;
 
 import java.time.LocalDateTime;
 
 @Builder
+@Getter
 public class ErrorMessage {
 
     private String message;
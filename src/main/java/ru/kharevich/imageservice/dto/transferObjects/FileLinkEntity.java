@@ -0,0 +1,10 @@
+package ru.kharevich.imageservice.dto.transferObjects;
+
+import java.time.Instant;
+
+public record FileLinkEntity(
+        String url,
+        String name,
+        Instant expiresAt
+) {
+}
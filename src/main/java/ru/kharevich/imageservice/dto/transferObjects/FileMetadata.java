@@ -0,0 +1,13 @@
+package ru.kharevich.imageservice.dto.transferObjects;
+
+import java.time.Instant;
+
+public record FileMetadata(
+        String key,
+        String name,
+        String contentType,
+        long contentLength,
+        String etag,
+        Instant lastModified
+) {
+}
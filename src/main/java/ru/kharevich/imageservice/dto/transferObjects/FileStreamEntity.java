@@ -0,0 +1,11 @@
+package ru.kharevich.imageservice.dto.transferObjects;
+
+import java.io.InputStream;
+
+public record FileStreamEntity(
+        InputStream content,
+        String name,
+        String contentType,
+        Long contentLength
+) {
+}
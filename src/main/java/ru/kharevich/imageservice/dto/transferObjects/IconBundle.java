@@ -0,0 +1,9 @@
+package ru.kharevich.imageservice.dto.transferObjects;
+
+import java.util.List;
+
+public record IconBundle(
+        List<FileTransferEntity> icons,
+        String etag
+) {
+}
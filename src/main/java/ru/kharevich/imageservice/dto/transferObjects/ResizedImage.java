@@ -0,0 +1,7 @@
+package ru.kharevich.imageservice.dto.transferObjects;
+
+public record ResizedImage(
+        byte[] content,
+        String contentType
+) {
+}
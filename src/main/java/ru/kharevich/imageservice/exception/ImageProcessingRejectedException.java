@@ -0,0 +1,16 @@
+package ru.kharevich.imageservice.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class ImageProcessingRejectedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ImageProcessingRejectedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,7 @@
+package ru.kharevich.imageservice.exception;
+
+public class UnsupportedImageSizeException extends RuntimeException {
+    public UnsupportedImageSizeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package ru.kharevich.imageservice.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+@Getter
+public class UploadRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    private final Duration retryAfter;
+
+    public UploadRejectedException(String message, HttpStatus status, Duration retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+}
@@ -8,6 +8,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -25,7 +26,10 @@ import java.util.UUID;
 @Getter
 @Builder
 @Setter
-@Table(name = "images")
+@Table(name = "images", indexes = {
+        @Index(name = "idx_images_parent_entity_id", columnList = "parent_entity_id"),
+        @Index(name = "idx_images_object_key", columnList = "object_key")
+})
 public class Image {
 
     @Id
@@ -38,6 +42,15 @@ public class Image {
     @Column(name = "name", nullable = false)
     private String name;
 
+    @Column(name = "object_key", nullable = false, length = 500)
+    private String objectKey;
+
+    /**
+     * Копия из ImageBlob: есть ли у объекта компактная копия и какого она типа
+     */
+    @Column(name = "compact_content_type")
+    private String compactContentType;
+
     @Column(name = "uploadedAt", nullable = false)
     @CreationTimestamp
     private LocalDateTime uploadedAt;
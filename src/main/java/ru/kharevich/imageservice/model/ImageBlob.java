@@ -0,0 +1,58 @@
+package ru.kharevich.imageservice.model;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Объект S3 с оригиналом изображения и число записей images, которые на него ссылаются.
+ * У объектов, загруженных до дедупликации, content_hash пустой
+ */
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Builder
+@Setter
+@Table(name = "image_blobs")
+public class ImageBlob {
+
+    @Id
+    @Column(name = "object_key", length = 500)
+    private String objectKey;
+
+    @Column(name = "content_hash", unique = true, length = 64)
+    private String contentHash;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    /**
+     * Тип перекодированной компактной копии (ImageVariantService.compactKey) или null, если её нет
+     */
+    @Column(name = "compact_content_type")
+    private String compactContentType;
+
+    @Column(name = "ref_count", nullable = false)
+    @ColumnDefault("1")
+    private int refCount;
+
+    @Column(name = "created_at")
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+}
@@ -0,0 +1,55 @@
+package ru.kharevich.imageservice.model;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Запись outbox: объект S3, который нужно удалить после коммита удаления метаданных
+ */
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Builder
+@Setter
+@Table(name = "object_deletion_outbox", indexes = {
+        @Index(name = "idx_object_deletion_outbox_next_attempt_at", columnList = "next_attempt_at")
+})
+public class ObjectDeletionTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "object_key", nullable = false, length = 500)
+    private String objectKey;
+
+    @Column(name = "attempts", nullable = false, insertable = false)
+    @ColumnDefault("0")
+    private int attempts;
+
+    @Column(name = "created_at")
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @Column(name = "next_attempt_at", nullable = false, insertable = false)
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    private LocalDateTime nextAttemptAt;
+
+}
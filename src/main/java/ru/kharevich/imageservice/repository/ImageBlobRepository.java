@@ -0,0 +1,55 @@
+package ru.kharevich.imageservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.kharevich.imageservice.model.ImageBlob;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    /**
+     * Добавляет ссылку на уже загруженный объект с таким хэшем и возвращает его (пустой список, если объекта нет)
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE {h-schema}image_blobs
+            SET ref_count = ref_count + 1
+            WHERE content_hash = :contentHash
+            RETURNING *
+            """, nativeQuery = true)
+    List<ImageBlob> acquire(@Param("contentHash") String contentHash);
+
+    /**
+     * Регистрирует только что загруженный объект с одной ссылкой. Если объект с таким хэшем
+     * успели зарегистрировать параллельно, ссылка добавляется к нему и возвращается он
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO {h-schema}image_blobs (object_key, content_hash, content_type, size_bytes, compact_content_type, ref_count)
+            VALUES (:objectKey, :contentHash, :contentType, :sizeBytes, :compactContentType, 1)
+            ON CONFLICT (content_hash) DO UPDATE SET ref_count = image_blobs.ref_count + 1
+            RETURNING *
+            """, nativeQuery = true)
+    ImageBlob register(@Param("objectKey") String objectKey,
+                       @Param("contentHash") String contentHash,
+                       @Param("contentType") String contentType,
+                       @Param("sizeBytes") long sizeBytes,
+                       @Param("compactContentType") String compactContentType);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE {h-schema}image_blobs SET ref_count = ref_count - :count WHERE object_key = :objectKey", nativeQuery = true)
+    int release(@Param("objectKey") String objectKey, @Param("count") int count);
+
+    /**
+     * Удаляет строки объектов без ссылок и возвращает их ключи для очистки S3
+     */
+    @Transactional
+    @Query(value = "DELETE FROM {h-schema}image_blobs WHERE object_key IN (:objectKeys) AND ref_count <= 0 RETURNING object_key", nativeQuery = true)
+    List<String> deleteUnreferenced(@Param("objectKeys") Collection<String> objectKeys);
+}
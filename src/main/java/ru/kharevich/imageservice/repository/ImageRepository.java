@@ -1,14 +1,33 @@
 package ru.kharevich.imageservice.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import ru.kharevich.imageservice.model.Image;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface ImageRepository extends JpaRepository<Image, UUID> {
-    Optional<Image> findByUrl(String url);
+    /**
+     * Поиск по индексу idx_images_object_key. Одинаковые файлы хранятся одним объектом,
+     * поэтому под одним ключом (и одним URL) может быть несколько записей: возвращается
+     * самая ранняя загрузка, при равном времени - с меньшим id
+     */
+    Optional<Image> findFirstByObjectKeyOrderByUploadedAtAscIdAsc(String objectKey);
 
     List<Image> findByParentEntityId(UUID parentId);
+
+    List<Image> findByParentEntityIdIn(Collection<UUID> parentIds);
+
+    /**
+     * Один DELETE по parent_entity_id, возвращает удалённые записи: по ним снимаются ссылки на объекты
+     * и инвалидируется кэш метаданных
+     */
+    @Transactional
+    @Query(value = "DELETE FROM {h-schema}images WHERE parent_entity_id = :parentId RETURNING *", nativeQuery = true)
+    List<Image> deleteByParentEntityIdReturningImages(@Param("parentId") UUID parentId);
 }
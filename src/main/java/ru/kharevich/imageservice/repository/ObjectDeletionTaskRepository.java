@@ -0,0 +1,43 @@
+package ru.kharevich.imageservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.kharevich.imageservice.model.ObjectDeletionTask;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface ObjectDeletionTaskRepository extends JpaRepository<ObjectDeletionTask, UUID> {
+
+    /**
+     * Забирает пачку готовых к удалению записей: строки, занятые другим узлом, пропускаются (SKIP LOCKED),
+     * а забранные откладываются на время аренды, чтобы после падения узла их подхватил кто-то другой
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE {h-schema}object_deletion_outbox
+            SET attempts = attempts + 1,
+                next_attempt_at = CURRENT_TIMESTAMP + make_interval(secs => :leaseSeconds)
+            WHERE id IN (SELECT id
+                         FROM {h-schema}object_deletion_outbox
+                         WHERE next_attempt_at <= CURRENT_TIMESTAMP
+                         ORDER BY next_attempt_at
+                         LIMIT :batchSize
+                         FOR UPDATE SKIP LOCKED)
+            RETURNING *
+            """, nativeQuery = true)
+    List<ObjectDeletionTask> claimBatch(@Param("batchSize") int batchSize, @Param("leaseSeconds") long leaseSeconds);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE {h-schema}object_deletion_outbox
+            SET next_attempt_at = CURRENT_TIMESTAMP + make_interval(secs => :delaySeconds)
+            WHERE id IN (:ids)
+            """, nativeQuery = true)
+    int reschedule(@Param("ids") Collection<UUID> ids, @Param("delaySeconds") long delaySeconds);
+}
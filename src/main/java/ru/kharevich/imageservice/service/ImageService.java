@@ -2,28 +2,51 @@ package ru.kharevich.imageservice.service;
 
 import jakarta.validation.Valid;
 import ru.kharevich.imageservice.dto.request.ImageRequest;
+import ru.kharevich.imageservice.dto.response.ImageLinkResponse;
 import ru.kharevich.imageservice.dto.response.ImageResponse;
+import ru.kharevich.imageservice.dto.response.ImageUploadResponse;
 import ru.kharevich.imageservice.dto.response.PageableResponse;
-import ru.kharevich.imageservice.dto.transferObjects.FileTransferEntity;
+import ru.kharevich.imageservice.dto.transferObjects.FileMetadata;
+import ru.kharevich.imageservice.dto.transferObjects.FileStreamEntity;
+import ru.kharevich.imageservice.dto.transferObjects.IconBundle;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface ImageService {
 
-    ImageResponse getById(UUID id);
+    CompletableFuture<ImageResponse> getById(UUID id, Integer imageSize);
 
-    ImageResponse getByUrl(String url);
+    /**
+     * URL адресует объект хранилища, а не запись: если один и тот же файл загружен к нескольким
+     * родителям, возвращается самая ранняя из этих записей (ImageRepository.findFirstByObjectKeyOrderByUploadedAtAscIdAsc)
+     */
+    CompletableFuture<ImageResponse> getByUrl(String url, Integer imageSize);
+
+    ImageLinkResponse getLinkById(UUID id, Integer imageSize);
+
+    ImageLinkResponse getLinksByParentId(UUID parentId, Integer imageSize);
+
+    PageableResponse<ImageLinkResponse> getManyLinksByParentId(List<UUID> ids, int page_number, int size, Integer imageSize);
+
+    FileMetadata getMetadataById(UUID id, Integer imageSize, boolean compact);
+
+    FileMetadata getMetadataByUrl(String url, Integer imageSize, boolean compact);
+
+    FileStreamEntity stream(FileMetadata metadata);
+
+    FileStreamEntity streamRange(FileMetadata metadata, long start, long end);
 
     void deleteById(UUID id);
 
-    ImageResponse save(ImageRequest imageRequest);
+    ImageUploadResponse save(ImageRequest imageRequest);
 
-    ImageResponse getByParentId(@Valid UUID id);
+    CompletableFuture<ImageResponse> getByParentId(@Valid UUID id, Integer imageSize);
 
     void deleteByParentId(@Valid UUID id);
 
-    List<FileTransferEntity> getSvgIcons();
+    IconBundle getSvgIcons();
 
-    PageableResponse<ImageResponse> getManyByParentId(List<UUID> ids, int page_number, int size);
+    CompletableFuture<PageableResponse<ImageResponse>> getManyByParentId(List<UUID> ids, int page_number, int size, Integer imageSize);
 }
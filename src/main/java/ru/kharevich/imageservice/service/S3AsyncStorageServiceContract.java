@@ -0,0 +1,13 @@
+package ru.kharevich.imageservice.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+
+public interface S3AsyncStorageServiceContract {
+
+    CompletableFuture<byte[]> downloadFile(String filename);
+
+    CompletableFuture<List<byte[]>> downloadFiles(List<String> filenames);
+
+}
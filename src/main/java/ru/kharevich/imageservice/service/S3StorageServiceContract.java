@@ -1,7 +1,10 @@
 package ru.kharevich.imageservice.service;
 
 import org.springframework.web.multipart.MultipartFile;
+import ru.kharevich.imageservice.dto.transferObjects.FileLinkEntity;
 import ru.kharevich.imageservice.dto.transferObjects.FileTransferEntity;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 
 import java.util.List;
@@ -13,14 +16,28 @@ public interface S3StorageServiceContract {
 
     String uploadFile(MultipartFile file, String customFilename);
 
+    void uploadBytes(String filename, byte[] content, String contentType);
+
     byte[] downloadFile(String filename);
 
+    List<byte[]> downloadFiles(List<String> filenames);
+
+    ResponseInputStream<GetObjectResponse> downloadFileAsStream(String filename);
+
+    ResponseInputStream<GetObjectResponse> downloadFileRangeAsStream(String filename, long start, long end);
+
     String getFileUrl(String filename);
 
-    void deleteFile(String filename);
+    String getObjectKey(String url);
+
+    FileLinkEntity generatePresignedUrl(String filename);
+
+    void deleteFiles(List<String> filenames);
 
     List<FileTransferEntity> downloadSvgIcons();
 
+    boolean fileExists(String filename);
+
     HeadObjectResponse getFileInfo(String filename);
 
 }
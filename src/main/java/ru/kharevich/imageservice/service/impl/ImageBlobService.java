@@ -0,0 +1,199 @@
+package ru.kharevich.imageservice.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+import ru.kharevich.imageservice.exception.FileUploadException;
+import ru.kharevich.imageservice.exception.ImageProcessingRejectedException;
+import ru.kharevich.imageservice.model.ImageBlob;
+import ru.kharevich.imageservice.model.ObjectDeletionTask;
+import ru.kharevich.imageservice.repository.ImageBlobRepository;
+import ru.kharevich.imageservice.repository.ObjectDeletionTaskRepository;
+import ru.kharevich.imageservice.util.ConcurrencyUtils;
+import ru.kharevich.imageservice.util.properties.ImageTranscodingProperties;
+import ru.kharevich.imageservice.util.properties.S3Properties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Контентно-адресуемое хранение оригиналов: ключ объекта строится из SHA-256 содержимого,
+ * одинаковые файлы лежат в S3 один раз, а image_blobs считает ссылки на них из images.
+ * К хэшу в ключе добавляется случайное поколение: если объект с нулевым счётчиком ещё ждёт удаления в outbox,
+ * повторная загрузка того же содержимого получит новый ключ и не будет удалена вместе со старым
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageBlobService {
+
+    private static final String KEY_PREFIX = "blobs/";
+
+    private final ImageBlobRepository imageBlobRepository;
+
+    private final ObjectDeletionTaskRepository objectDeletionTaskRepository;
+
+    private final S3StorageService s3StorageService;
+
+    private final ImageVariantService imageVariantService;
+
+    private final S3Properties s3Properties;
+
+    private final ImageTranscodingProperties imageTranscodingProperties;
+
+    @Qualifier("s3TaskExecutor")
+    private final ExecutorService s3TaskExecutor;
+
+    /**
+     * Сохраняет файлы параллельно (не более app.s3.upload-concurrency одновременно) и возвращает объекты в порядке файлов.
+     * Если хотя бы один файл не сохранился, ссылки на уже сохранённые снимаются
+     */
+    public List<ImageBlob> storeAll(List<MultipartFile> files) {
+        List<ImageBlob> blobs = ConcurrencyUtils.mapConcurrently(files, file -> {
+            try {
+                return store(file);
+            } catch (RuntimeException e) {
+                log.error("Error storing file {}: {}", file.getOriginalFilename(), e.getMessage());
+                return null;
+            }
+        }, s3Properties.getUploadConcurrency(), s3TaskExecutor);
+
+        if (blobs.stream().anyMatch(Objects::isNull)) {
+            release(blobs.stream().filter(Objects::nonNull).map(ImageBlob::getObjectKey).toList());
+            throw new FileUploadException("Failed to upload files");
+        }
+        return blobs;
+    }
+
+    /**
+     * Если объект с таким же содержимым уже есть, к нему добавляется ссылка и putObject не выполняется.
+     * Иначе файл сначала загружается в S3 и только потом регистрируется, поэтому строка image_blobs
+     * всегда указывает на существующий объект. Если тот же файл параллельно зарегистрировал другой запрос,
+     * используется его объект, а лишние копии сразу удаляются. Если регистрация не удалась,
+     * загруженные объекты тоже удаляются, чтобы в бакете не оставалось объектов без строки image_blobs
+     */
+    public ImageBlob store(MultipartFile file) {
+        String contentHash = sha256(file);
+        List<ImageBlob> existing = imageBlobRepository.acquire(contentHash);
+        if (!existing.isEmpty()) {
+            log.info("Duplicate upload of {}, reusing {}", file.getOriginalFilename(), existing.getFirst().getObjectKey());
+            return existing.getFirst();
+        }
+
+        String objectKey = objectKey(contentHash);
+        s3StorageService.uploadFile(file, objectKey);
+        String compactContentType = createCompact(file, objectKey);
+        ImageBlob registered;
+        try {
+            registered = imageBlobRepository.register(
+                    objectKey, contentHash, file.getContentType(), file.getSize(), compactContentType);
+        } catch (RuntimeException e) {
+            discard(uploadedKeys(objectKey, compactContentType));
+            throw e;
+        }
+        if (!registered.getObjectKey().equals(objectKey)) {
+            s3StorageService.deleteFiles(uploadedKeys(objectKey, compactContentType));
+        }
+        return registered;
+    }
+
+    private List<String> uploadedKeys(String objectKey, String compactContentType) {
+        return compactContentType != null
+                ? List.of(objectKey, imageVariantService.compactKey(objectKey))
+                : List.of(objectKey);
+    }
+
+    /**
+     * Удаляет незарегистрированные объекты сразу; если S3 не ответил, оставляет задачу в outbox удалений
+     */
+    private void discard(List<String> objectKeys) {
+        try {
+            s3StorageService.deleteFiles(objectKeys);
+        } catch (RuntimeException e) {
+            log.warn("Failed to delete unregistered objects {}, enqueueing deletion: {}", objectKeys, e.getMessage());
+            try {
+                objectDeletionTaskRepository.saveAll(objectKeys.stream()
+                        .map(key -> ObjectDeletionTask.builder().objectKey(key).build())
+                        .toList());
+            } catch (RuntimeException outboxError) {
+                log.error("Unregistered objects {} are left in the bucket: {}", objectKeys, outboxError.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Снимает по одной ссылке за каждое вхождение ключа. Объекты, на которые больше никто не ссылается,
+     * вместе с уменьшенными копиями уходят в outbox удалений в той же транзакции.
+     * Ключи обновляются в отсортированном порядке, чтобы параллельные удаления не взаимоблокировались
+     */
+    @Transactional
+    public void release(List<String> objectKeys) {
+        if (objectKeys.isEmpty()) {
+            return;
+        }
+        Map<String, Long> counts = objectKeys.stream()
+                .collect(Collectors.groupingBy(key -> key, TreeMap::new, Collectors.counting()));
+        counts.forEach((key, count) -> imageBlobRepository.release(key, count.intValue()));
+
+        List<String> unreferenced = imageBlobRepository.deleteUnreferenced(counts.keySet());
+        objectDeletionTaskRepository.saveAll(unreferenced.stream()
+                .flatMap(key -> imageVariantService.objectKeys(key).stream())
+                .map(key -> ObjectDeletionTask.builder().objectKey(key).build())
+                .toList());
+    }
+
+    /**
+     * Необязательный этап перекодирования в компактный формат: если он не удался, загрузка продолжается с одним оригиналом
+     */
+    private String createCompact(MultipartFile file, String objectKey) {
+        if (!imageTranscodingProperties.isEnabled()
+                || file.getSize() > imageTranscodingProperties.getMaxSourceSize().toBytes()) {
+            return null;
+        }
+        try {
+            return imageVariantService.createCompact(objectKey, file.getBytes());
+        } catch (ImageProcessingRejectedException e) {
+            log.warn("Image processing queue is full, {} is stored without compact copy", objectKey);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to transcode {}: {}", objectKey, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Хэш считается потоково, файл целиком в память не читается
+     */
+    private static String sha256(MultipartFile file) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream content = new DigestInputStream(file.getInputStream(), digest)) {
+                content.transferTo(OutputStream.nullOutputStream());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.error("Error hashing file: {}", e.getMessage());
+            throw new FileUploadException("Failed to upload file");
+        }
+    }
+
+    private static String objectKey(String contentHash) {
+        return KEY_PREFIX + contentHash + "-" + HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextLong());
+    }
+
+}
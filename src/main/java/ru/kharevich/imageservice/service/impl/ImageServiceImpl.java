@@ -1,30 +1,48 @@
 package ru.kharevich.imageservice.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import ru.kharevich.imageservice.cache.ImageMetadataCache;
+import ru.kharevich.imageservice.cache.SvgIconCache;
 import ru.kharevich.imageservice.dto.request.ImageRequest;
+import ru.kharevich.imageservice.dto.response.FileResponse;
+import ru.kharevich.imageservice.dto.response.ImageLinkResponse;
 import ru.kharevich.imageservice.dto.response.ImageResponse;
+import ru.kharevich.imageservice.dto.response.ImageUploadResponse;
 import ru.kharevich.imageservice.dto.response.PageableResponse;
-import ru.kharevich.imageservice.dto.transferObjects.FileTransferEntity;
-import ru.kharevich.imageservice.exception.FileUploadException;
+import ru.kharevich.imageservice.dto.transferObjects.FileLinkEntity;
+import ru.kharevich.imageservice.dto.transferObjects.FileMetadata;
+import ru.kharevich.imageservice.dto.transferObjects.FileStreamEntity;
+import ru.kharevich.imageservice.dto.transferObjects.IconBundle;
 import ru.kharevich.imageservice.exception.ImageNotFoundException;
 import ru.kharevich.imageservice.model.Image;
+import ru.kharevich.imageservice.model.ImageBlob;
 import ru.kharevich.imageservice.repository.ImageRepository;
 import ru.kharevich.imageservice.service.ImageService;
 import ru.kharevich.imageservice.util.PageUtils;
 import ru.kharevich.imageservice.util.mapper.ImageMapper;
 import ru.kharevich.imageservice.util.mapper.PageMapper;
 import ru.kharevich.imageservice.util.validation.ImageValidationService;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 
-import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -36,117 +54,320 @@ public class ImageServiceImpl implements ImageService {
 
     private final S3StorageService s3StorageService;
 
+    private final S3AsyncStorageService s3AsyncStorageService;
+
     private final ImageValidationService imageValidationService;
 
     private final PageMapper pageMapper;
 
-    @Transactional(isolation = Isolation.SERIALIZABLE)
-    public ImageResponse getById(UUID id) {
-        Image image = imageValidationService.findByIdThrowsExceptionIfDoesntExist(id, new ImageNotFoundException("Image with id {} not found".formatted(id)));
-        byte[] file = s3StorageService.downloadFile(image.getName());
-        return imageMapper.toResponse(
-                image.getImageType(),
-                Collections.singletonList(file),
-                Collections.singletonList(image.getName()),
-                image.getParentEntityId());
+    private final SvgIconCache svgIconCache;
+
+    private final ImageVariantService imageVariantService;
+
+    private final ImageBlobService imageBlobService;
+
+    private final ImageMetadataCache imageMetadataCache;
+
+    @Qualifier("s3TaskExecutor")
+    private final ExecutorService s3TaskExecutor;
+
+    /**
+     * Метаданные читаются синхронно (через ImageMetadataCache), байты - через S3AsyncClient, поток запроса не ждёт S3
+     */
+    public CompletableFuture<ImageResponse> getById(UUID id, Integer imageSize) {
+        Image image = findById(id);
+        return downloadFile(image.getObjectKey(), imageSize)
+                .thenApply(file -> imageMapper.toResponse(
+                        image.getImageType(),
+                        Collections.singletonList(file),
+                        Collections.singletonList(image.getName()),
+                        image.getParentEntityId()));
     }
 
-    @Transactional(isolation = Isolation.SERIALIZABLE)
-    public ImageResponse getByUrl(String url) {
-        Image image = imageValidationService.findByUrlThrowsExceptionIfDoesntExist(url, new ImageNotFoundException("Image with url {} not found".formatted(url)));
-        byte[] file = s3StorageService.downloadFile(image.getName());
-        return imageMapper.toResponse(
-                image.getImageType(),
-                Collections.singletonList(file),
-                Collections.singletonList(image.getName()),
-                image.getParentEntityId()
-        );
+    /**
+     * url разбирается обратно в ключ объекта, запись ищется по индексу на object_key
+     */
+    public CompletableFuture<ImageResponse> getByUrl(String url, Integer imageSize) {
+        Image image = findByUrl(url);
+        return downloadFile(image.getObjectKey(), imageSize)
+                .thenApply(file -> imageMapper.toResponse(
+                        image.getImageType(),
+                        Collections.singletonList(file),
+                        Collections.singletonList(image.getName()),
+                        image.getParentEntityId()
+                ));
+    }
+
+    @Override
+    public FileMetadata getMetadataById(UUID id, Integer imageSize, boolean compact) {
+        Image image = findById(id);
+        return describe(image, imageSize, compact);
+    }
+
+    @Override
+    public FileMetadata getMetadataByUrl(String url, Integer imageSize, boolean compact) {
+        Image image = findByUrl(url);
+        return describe(image, imageSize, compact);
+    }
+
+    @Override
+    public FileStreamEntity stream(FileMetadata metadata) {
+        ResponseInputStream<GetObjectResponse> stream = s3StorageService.downloadFileAsStream(metadata.key());
+        return new FileStreamEntity(stream, metadata.name(), metadata.contentType(), stream.response().contentLength());
+    }
+
+    @Override
+    public FileStreamEntity streamRange(FileMetadata metadata, long start, long end) {
+        ResponseInputStream<GetObjectResponse> stream = s3StorageService.downloadFileRangeAsStream(metadata.key(), start, end);
+        return new FileStreamEntity(stream, metadata.name(), metadata.contentType(), stream.response().contentLength());
     }
 
-    @Transactional(isolation = Isolation.SERIALIZABLE)
+    /**
+     * Строка удаляется в одной транзакции со снятием ссылки на объект; объект без ссылок попадает в outbox удалений,
+     * из S3 его удаляет ObjectDeletionPoller
+     */
+    @Transactional
     public void deleteById(UUID id) {
         Image image = imageValidationService.findByIdThrowsExceptionIfDoesntExist(
                 id,
                 new ImageNotFoundException("Image with id not found")
         );
         imageRepository.deleteById(id);
-        s3StorageService.deleteFile(image.getName());
-    }
-
-    @Transactional(isolation = Isolation.SERIALIZABLE)
-    public ImageResponse save(ImageRequest imageRequest) {
-        ImageResponse response;
-        List<String> names = new ArrayList<>();
-        imageRequest.files().forEach(image -> {
-            String name = generateFilename(image, imageRequest.parentEntityId());
-            names.add(name);
-            String url = s3StorageService.uploadFile(image, name);
-            Image imageToSave = imageMapper.toEntity(imageRequest, url, name);
-            imageRepository.saveAndFlush(imageToSave);
-        });
-        response = imageMapper.toResponse(
+        imageBlobService.release(List.of(image.getObjectKey()));
+        imageMetadataCache.evict(List.of(id), List.of(image.getObjectKey()), List.of(image.getParentEntityId()));
+    }
+
+    /**
+     * Файлы сохраняются в S3 параллельно и без открытой транзакции, одинаковое содержимое загружается один раз
+     * (см. ImageBlobService), затем все записи сохраняются одним batch insert.
+     * Если запись в БД не удалась, ссылки на объекты снимаются.
+     * В ответе только метаданные сохранённых изображений, содержимое файлов обратно не отдаётся
+     */
+    public ImageUploadResponse save(ImageRequest imageRequest) {
+        List<MultipartFile> files = imageRequest.files();
+        List<ImageBlob> blobs = imageBlobService.storeAll(files);
+        List<String> keys = blobs.stream().map(ImageBlob::getObjectKey).toList();
+        List<Image> imagesToSave = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            ImageBlob blob = blobs.get(i);
+            imagesToSave.add(imageMapper.toEntity(
+                    imageRequest,
+                    s3StorageService.getFileUrl(blob.getObjectKey()),
+                    generateFilename(files.get(i), blob.getObjectKey()),
+                    blob.getObjectKey(),
+                    blob.getCompactContentType()));
+        }
+        List<Image> savedImages;
+        try {
+            savedImages = imageRepository.saveAll(imagesToSave);
+        } catch (RuntimeException e) {
+            imageBlobService.release(keys);
+            throw e;
+        }
+        imageMetadataCache.evict(List.of(), List.of(), List.of(imageRequest.parentEntityId()));
+
+        List<FileResponse> savedFiles = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            savedFiles.add(imageMapper.toFileResponse(savedImages.get(i), file.getSize(), file.getContentType()));
+        }
+        return imageMapper.toUploadResponse(
                 imageRequest.imageType(),
-                convertFromMultifile(imageRequest.files()),
-                names,
+                savedFiles,
                 imageRequest.parentEntityId()
         );
+    }
 
-        return response;
+    @Override
+    public CompletableFuture<ImageResponse> getByParentId(UUID parentId, Integer imageSize) {
+        List<Image> images = findImagesByParentId(parentId);
+        return downloadFiles(extractKeys(images), imageSize)
+                .thenApply(files -> toResponse(parentId, images, files));
+    }
+
+    public CompletableFuture<PageableResponse<ImageResponse>> getManyByParentId(List<UUID> ids, int page_number, int size, Integer imageSize) {
+        Page<UUID> parentPage = PageUtils.convertListToPage(ids, page_number, size);
+        List<UUID> pageIds = parentPage.getContent();
+
+        List<List<Image>> imagesByParent = findImagesByParentIds(pageIds);
+        List<String> keys = imagesByParent.stream()
+                .flatMap(images -> extractKeys(images).stream())
+                .toList();
+
+        return downloadFiles(keys, imageSize).thenApply(files -> {
+            List<ImageResponse> responses = new ArrayList<>(pageIds.size());
+            int offset = 0;
+            for (int i = 0; i < pageIds.size(); i++) {
+                List<Image> images = imagesByParent.get(i);
+                responses.add(toResponse(pageIds.get(i), images, files.subList(offset, offset + images.size())));
+                offset += images.size();
+            }
+            Page<ImageResponse> responsePage = new PageImpl<>(responses, parentPage.getPageable(), parentPage.getTotalElements());
+            return pageMapper.toResponse(responsePage);
+        });
     }
 
     @Override
-    public ImageResponse getByParentId(UUID parentId) {
-        List<Image> images = imageRepository.findByParentEntityId(parentId);
+    public ImageLinkResponse getLinkById(UUID id, Integer imageSize) {
+        Image image = findById(id);
+        return toLinkResponse(image.getParentEntityId(), List.of(image), imageSize);
+    }
+
+    @Override
+    public ImageLinkResponse getLinksByParentId(UUID parentId, Integer imageSize) {
+        return toLinkResponse(parentId, findImagesByParentId(parentId), imageSize);
+    }
+
+    @Override
+    public PageableResponse<ImageLinkResponse> getManyLinksByParentId(List<UUID> ids, int page_number, int size, Integer imageSize) {
+        Page<UUID> parentPage = PageUtils.convertListToPage(ids, page_number, size);
+        List<UUID> pageIds = parentPage.getContent();
+
+        List<List<Image>> imagesByParent = findImagesByParentIds(pageIds);
+        List<ImageLinkResponse> responses = new ArrayList<>(pageIds.size());
+        for (int i = 0; i < pageIds.size(); i++) {
+            responses.add(toLinkResponse(pageIds.get(i), imagesByParent.get(i), imageSize));
+        }
+        Page<ImageLinkResponse> responsePage = new PageImpl<>(responses, parentPage.getPageable(), parentPage.getTotalElements());
+        return pageMapper.toResponse(responsePage);
+    }
+
+    /**
+     * Записи удаляются одним DELETE в одной транзакции со снятием ссылок на объекты и записью в outbox удалений,
+     * поэтому ответ не ждёт S3
+     */
+    @Transactional
+    public void deleteByParentId(UUID parentId) {
+        List<Image> images = imageRepository.deleteByParentEntityIdReturningImages(parentId);
+        List<String> keys = extractKeys(images);
+        imageBlobService.release(keys);
+        imageMetadataCache.evict(images.stream().map(Image::getId).toList(), keys, List.of(parentId));
+    }
+
+    public IconBundle getSvgIcons() {
+        return svgIconCache.get();
+    }
+
+    private Image findById(UUID id) {
+        return imageMetadataCache.getById(id, () -> imageValidationService.findByIdThrowsExceptionIfDoesntExist(
+                id,
+                new ImageNotFoundException("Image with id {} not found".formatted(id))));
+    }
+
+    private Image findByUrl(String url) {
+        String objectKey = s3StorageService.getObjectKey(url);
+        ImageNotFoundException notFound = new ImageNotFoundException("Image with url {} not found".formatted(url));
+        if (objectKey == null) {
+            throw notFound;
+        }
+        return imageMetadataCache.getByObjectKey(objectKey,
+                () -> imageValidationService.findByObjectKeyThrowsExceptionIfDoesntExist(objectKey, notFound));
+    }
+
+    private List<Image> findImagesByParentId(UUID parentId) {
+        List<Image> images = imageMetadataCache.getByParentId(parentId, () -> imageRepository.findByParentEntityId(parentId));
         if (images.isEmpty())
             throw new ImageNotFoundException("no image");
-        List<byte[]> bytes = new ArrayList<>();
-        List<String> names = new ArrayList<>();
-        images.forEach(image -> {
-            bytes.add(s3StorageService.downloadFile(image.getName()));
-            names.add(image.getName());
-        });
+        return images;
+    }
+
+    private List<List<Image>> findImagesByParentIds(List<UUID> parentIds) {
+        Map<UUID, List<Image>> imagesByParentId = imageMetadataCache.getByParentIds(parentIds,
+                missing -> imageRepository.findByParentEntityIdIn(missing)
+                        .stream()
+                        .collect(Collectors.groupingBy(Image::getParentEntityId)));
+        return parentIds.stream()
+                .map(parentId -> {
+                    List<Image> images = imagesByParentId.get(parentId);
+                    if (images == null)
+                        throw new ImageNotFoundException("no image");
+                    return images;
+                })
+                .toList();
+    }
+
+    private List<String> extractNames(List<Image> images) {
+        return images.stream()
+                .map(Image::getName)
+                .toList();
+    }
+
+    private List<String> extractKeys(List<Image> images) {
+        return images.stream()
+                .map(Image::getObjectKey)
+                .toList();
+    }
+
+    private ImageResponse toResponse(UUID parentId, List<Image> images, List<byte[]> files) {
         return imageMapper.toResponse(
                 images.getFirst().getImageType(),
-                bytes,
-                names,
+                files,
+                extractNames(images),
                 parentId
         );
     }
 
-    public PageableResponse<ImageResponse> getManyByParentId(List<UUID> ids, int page_number, int size) {
-        List<ImageResponse> responses = ids.
-                stream()
-                .map(this::getByParentId)
-                .toList();
-        Page<ImageResponse> responsePage = PageUtils.convertListToPage(responses, page_number, size);
-        return pageMapper.toResponse(responsePage);
+    private ImageLinkResponse toLinkResponse(UUID parentId, List<Image> images, Integer imageSize) {
+        List<String> keys = imageSize == null
+                ? extractKeys(images)
+                : imageVariantService.resolveKeys(extractKeys(images), imageSize);
+        List<FileLinkEntity> links = new ArrayList<>(images.size());
+        for (int i = 0; i < images.size(); i++) {
+            FileLinkEntity link = s3StorageService.generatePresignedUrl(keys.get(i));
+            links.add(new FileLinkEntity(link.url(), images.get(i).getName(), link.expiresAt()));
+        }
+        return imageMapper.toLinkResponse(
+                images.getFirst().getImageType(),
+                links,
+                parentId
+        );
     }
 
-    public void deleteByParentId(UUID parentId) {
-        List<Image> images = imageRepository.findByParentEntityId(parentId);
-        images.stream().forEach(image -> {
-            imageRepository.deleteById(image.getId());
-            s3StorageService.deleteFile(image.getName());
-        });
+    /**
+     * Уменьшенные копии создаются синхронно (ресайз на CPU-пуле), поэтому этот путь уходит на s3TaskExecutor
+     */
+    private CompletableFuture<byte[]> downloadFile(String name, Integer imageSize) {
+        return imageSize == null
+                ? s3AsyncStorageService.downloadFile(name)
+                : CompletableFuture.supplyAsync(() -> imageVariantService.downloadVariant(name, imageSize), s3TaskExecutor);
     }
 
-    public List<FileTransferEntity> getSvgIcons() {
-        return s3StorageService.downloadSvgIcons();
+    private CompletableFuture<List<byte[]>> downloadFiles(List<String> names, Integer imageSize) {
+        return imageSize == null
+                ? s3AsyncStorageService.downloadFiles(names)
+                : CompletableFuture.supplyAsync(() -> imageVariantService.downloadVariants(names, imageSize), s3TaskExecutor);
     }
 
-    private String generateFilename(MultipartFile file, UUID parentId) {
-        return file.getOriginalFilename() + "-" + parentId.toString();
+    /**
+     * Метаданные берутся HEAD-запросом, тело объекта из S3 не читается.
+     * Last-Modified - время загрузки записи, либо время создания объекта в S3, если он новее (например, уменьшенная копия).
+     * Если клиент принимает компактный формат и у изображения есть такая копия, отдаётся она (и её уменьшенные копии)
+     */
+    private FileMetadata describe(Image image, Integer imageSize, boolean compact) {
+        boolean serveCompact = compact && image.getCompactContentType() != null;
+        String source = serveCompact ? imageVariantService.compactKey(image.getObjectKey()) : image.getObjectKey();
+        String key = imageSize == null ? source : imageVariantService.resolveKey(source, imageSize);
+        HeadObjectResponse object = s3StorageService.getFileInfo(key);
+        Instant lastModified = image.getUploadedAt().atZone(ZoneId.systemDefault()).toInstant();
+        if (object.lastModified() != null && object.lastModified().isAfter(lastModified)) {
+            lastModified = object.lastModified();
+        }
+        return new FileMetadata(
+                key,
+                serveCompact ? imageVariantService.compactKey(image.getName()) : image.getName(),
+                object.contentType(),
+                object.contentLength(),
+                object.eTag(),
+                lastModified.truncatedTo(ChronoUnit.SECONDS)
+        );
     }
 
-    private List<byte[]> convertFromMultifile(List<MultipartFile> files) {
-        List<byte[]> bytes = files.stream().map((file) -> {
-            try {
-                return file.getBytes();
-            } catch (IOException e) {
-                throw new FileUploadException("unable convert file");
-            }
-        }).toList();
-        return bytes;
+    /**
+     * Имя файла только для отображения, объект в S3 адресуется по содержимому
+     */
+    private String generateFilename(MultipartFile file, String objectKey) {
+        String originalFilename = file.getOriginalFilename();
+        return originalFilename == null || originalFilename.isBlank() ? objectKey : originalFilename;
     }
 
 }
@@ -0,0 +1,250 @@
+package ru.kharevich.imageservice.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import ru.kharevich.imageservice.dto.transferObjects.ResizedImage;
+import ru.kharevich.imageservice.exception.FileNotFoundException;
+import ru.kharevich.imageservice.exception.ImageProcessingRejectedException;
+import ru.kharevich.imageservice.exception.UnsupportedImageSizeException;
+import ru.kharevich.imageservice.util.ConcurrencyUtils;
+import ru.kharevich.imageservice.util.ImageResizer;
+import ru.kharevich.imageservice.util.ImageTranscoder;
+import ru.kharevich.imageservice.util.properties.ImageTranscodingProperties;
+import ru.kharevich.imageservice.util.properties.ImageVariantProperties;
+import ru.kharevich.imageservice.util.properties.S3Properties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Уменьшенные копии изображений (64/256/1024 px по большей стороне).
+ * Создаются лениво при первом запросе и хранятся в S3 рядом с оригиналом под ключом "{name}_{size}px".
+ * Компактная JPEG-копия оригинала создаётся при загрузке и лежит под ключом "{name}.jpg",
+ * её уменьшенные копии строятся так же, как у оригинала.
+ * Изображения, которые нельзя уменьшить (SVG, нечитаемые, слишком большие), запоминаются в памяти,
+ * и следующие запросы сразу получают оригинал без повторного скачивания и декодирования
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageVariantService {
+
+    private static final String COMPACT_SUFFIX = ".jpg";
+
+    private static final long NOT_RESIZABLE_CACHE_SIZE = 10_000;
+
+    private final S3StorageService s3StorageService;
+
+    private final ImageVariantProperties imageVariantProperties;
+
+    private final ImageTranscodingProperties imageTranscodingProperties;
+
+    private final S3Properties s3Properties;
+
+    @Qualifier("s3TaskExecutor")
+    private final ExecutorService s3TaskExecutor;
+
+    @Qualifier("imageProcessingExecutor")
+    private final ExecutorService imageProcessingExecutor;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Ключи изображений, которые нельзя уменьшить. Объекты по ключу не меняются, поэтому записи не устаревают,
+     * размер ограничен только ради памяти
+     */
+    private final Cache<String, Boolean> notResizableImages = Caffeine.newBuilder()
+            .maximumSize(NOT_RESIZABLE_CACHE_SIZE)
+            .build();
+
+    /**
+     * Варианты, которые сейчас создаются: одновременные промахи по одному ключу ждут одного ресайза
+     */
+    private final ConcurrentMap<String, CompletableFuture<ResizedImage>> variantsInProgress = new ConcurrentHashMap<>();
+
+    /**
+     * Промахом считается только отсутствие варианта в S3 (404): при других ошибках S3 вариант не пересоздаётся
+     */
+    public byte[] downloadVariant(String name, int size) {
+        validateSize(size);
+        if (isNotResizable(name)) {
+            return s3StorageService.downloadFile(name);
+        }
+        try {
+            return s3StorageService.downloadFile(variantKey(name, size));
+        } catch (FileNotFoundException e) {
+            ResizedImage variant = createVariant(name, size);
+            return variant != null ? variant.content() : s3StorageService.downloadFile(name);
+        }
+    }
+
+    public List<byte[]> downloadVariants(List<String> names, int size) {
+        validateSize(size);
+        return ConcurrencyUtils.mapConcurrently(
+                names,
+                name -> downloadVariant(name, size),
+                s3Properties.getDownloadConcurrency(),
+                s3TaskExecutor
+        );
+    }
+
+    /**
+     * Возвращает ключ варианта, при необходимости создав его.
+     * Для форматов, которые нельзя уменьшить (SVG), возвращается ключ оригинала
+     */
+    public String resolveKey(String name, int size) {
+        validateSize(size);
+        if (isNotResizable(name)) {
+            return name;
+        }
+        String key = variantKey(name, size);
+        if (s3StorageService.fileExists(key)) {
+            return key;
+        }
+        return createVariant(name, size) != null ? key : name;
+    }
+
+    public List<String> resolveKeys(List<String> names, int size) {
+        validateSize(size);
+        return ConcurrencyUtils.mapConcurrently(
+                names,
+                name -> resolveKey(name, size),
+                s3Properties.getDownloadConcurrency(),
+                s3TaskExecutor
+        );
+    }
+
+    /**
+     * Перекодирует оригинал в компактный формат на пуле обработки и сохраняет под compactKey.
+     * Возвращает тип сохранённой копии или null, если формат не подходит или выигрыш в размере слишком мал
+     */
+    public String createCompact(String name, byte[] original) {
+        ResizedImage compact = process("compact", () -> ImageTranscoder.toCompact(original,
+                imageTranscodingProperties.getQuality(), imageTranscodingProperties.getMaxSourcePixels()));
+        if (compact == null || compact.content().length > original.length * imageTranscodingProperties.getMaxSizeRatio()) {
+            log.debug("Image {} is not transcoded, serving original only", name);
+            return null;
+        }
+        s3StorageService.uploadBytes(compactKey(name), compact.content(), compact.contentType());
+        log.info("Compact copy created: {}, {} -> {} bytes", name, original.length, compact.content().length);
+        return compact.contentType();
+    }
+
+    public String compactKey(String name) {
+        return name + COMPACT_SUFFIX;
+    }
+
+    /**
+     * Ключи оригинала, компактной копии и всех их возможных вариантов - для удаления
+     */
+    public List<String> objectKeys(String name) {
+        List<String> keys = new ArrayList<>();
+        for (String source : List.of(name, compactKey(name))) {
+            keys.add(source);
+            keys.addAll(variantKeys(source));
+        }
+        return keys;
+    }
+
+    public List<String> variantKeys(String name) {
+        return imageVariantProperties.getSizes().stream()
+                .map(size -> variantKey(name, size))
+                .toList();
+    }
+
+    /**
+     * Создаёт вариант или возвращает null, если изображение нельзя уменьшить.
+     * Если этот вариант уже создаётся другим запросом, ждёт его результата вместо повторного ресайза
+     */
+    private ResizedImage createVariant(String name, int size) {
+        String key = variantKey(name, size);
+        CompletableFuture<ResizedImage> created = new CompletableFuture<>();
+        CompletableFuture<ResizedImage> running = variantsInProgress.putIfAbsent(key, created);
+        if (running != null) {
+            return join(running);
+        }
+        try {
+            created.complete(resizeAndUpload(name, size));
+        } catch (Throwable e) {
+            created.completeExceptionally(e);
+        } finally {
+            variantsInProgress.remove(key, created);
+        }
+        return join(created);
+    }
+
+    private ResizedImage resizeAndUpload(String name, int size) {
+        byte[] original = s3StorageService.downloadFile(name);
+        ResizedImage variant = resize(original, size);
+        if (variant == null) {
+            notResizableImages.put(name, Boolean.TRUE);
+            log.debug("Image {} can not be resized, serving original", name);
+            return null;
+        }
+        s3StorageService.uploadBytes(variantKey(name, size), variant.content(), variant.contentType());
+        log.info("Image variant created: {}, size {}", name, size);
+        return variant;
+    }
+
+    private ResizedImage resize(byte[] original, int size) {
+        return process("variant", () -> ImageResizer.resize(original, size, imageVariantProperties.getMaxSourcePixels()));
+    }
+
+    /**
+     * Ресайз и перекодирование выполняются на отдельном пуле по числу ядер, чтобы не занимать потоки обработки запросов.
+     * Если очередь пула заполнена, задача не ставится и бросается ImageProcessingRejectedException (503 с Retry-After)
+     */
+    private ResizedImage process(String taskName, Supplier<ResizedImage> task) {
+        CompletableFuture<ResizedImage> result;
+        try {
+            result = CompletableFuture.supplyAsync(task, imageProcessingExecutor);
+        } catch (RejectedExecutionException e) {
+            meterRegistry.counter("image.processing.rejected", "task", taskName).increment();
+            throw new ImageProcessingRejectedException("Image processing queue is full",
+                    imageVariantProperties.getOverloadRetryAfter());
+        }
+        return join(result);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private boolean isNotResizable(String name) {
+        return notResizableImages.getIfPresent(name) != null;
+    }
+
+    private void validateSize(int size) {
+        if (!imageVariantProperties.getSizes().contains(size)) {
+            throw new UnsupportedImageSizeException("Unsupported image size %d, allowed: %s"
+                    .formatted(size, imageVariantProperties.getSizes()));
+        }
+    }
+
+    private String variantKey(String name, int size) {
+        return "%s_%dpx".formatted(name, size);
+    }
+
+}
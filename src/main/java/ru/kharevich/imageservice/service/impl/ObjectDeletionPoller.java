@@ -0,0 +1,70 @@
+package ru.kharevich.imageservice.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.kharevich.imageservice.model.ObjectDeletionTask;
+import ru.kharevich.imageservice.repository.ObjectDeletionTaskRepository;
+import ru.kharevich.imageservice.util.properties.S3Properties;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Разбирает outbox удалений: забирает пачку записей (SKIP LOCKED, безопасно для нескольких узлов),
+ * удаляет объекты одним DeleteObjects и только после этого удаляет записи.
+ * При ошибке S3 пачка откладывается с экспоненциальной задержкой, ограниченной app.s3.deletion-max-backoff
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ObjectDeletionPoller {
+
+    private final ObjectDeletionTaskRepository objectDeletionTaskRepository;
+
+    private final S3StorageService s3StorageService;
+
+    private final S3Properties s3Properties;
+
+    @Scheduled(fixedDelayString = "${app.s3.deletion-poll-interval:PT5S}")
+    public void poll() {
+        int batchSize = s3Properties.getDeletionBatchSize();
+        List<ObjectDeletionTask> batch;
+        do {
+            batch = objectDeletionTaskRepository.claimBatch(batchSize, s3Properties.getDeletionLease().toSeconds());
+            if (!batch.isEmpty()) {
+                process(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private void process(List<ObjectDeletionTask> batch) {
+        List<UUID> ids = batch.stream()
+                .map(ObjectDeletionTask::getId)
+                .toList();
+        try {
+            s3StorageService.deleteFiles(batch.stream()
+                    .map(ObjectDeletionTask::getObjectKey)
+                    .distinct()
+                    .toList());
+            objectDeletionTaskRepository.deleteAllByIdInBatch(ids);
+        } catch (RuntimeException e) {
+            int attempts = batch.stream()
+                    .mapToInt(ObjectDeletionTask::getAttempts)
+                    .max()
+                    .orElse(1);
+            long delaySeconds = retryDelaySeconds(attempts);
+            objectDeletionTaskRepository.reschedule(ids, delaySeconds);
+            log.warn("Failed to delete {} objects (attempt {}), retrying in {} s: {}", ids.size(), attempts, delaySeconds, e.getMessage());
+        }
+    }
+
+    private long retryDelaySeconds(int attempts) {
+        long backoff = s3Properties.getDeletionRetryBackoff().toSeconds();
+        long maxBackoff = s3Properties.getDeletionMaxBackoff().toSeconds();
+        int shift = Math.min(attempts - 1, 20);
+        return Math.min(backoff << shift, maxBackoff);
+    }
+
+}
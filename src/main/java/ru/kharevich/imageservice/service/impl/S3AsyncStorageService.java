@@ -0,0 +1,78 @@
+package ru.kharevich.imageservice.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.kharevich.imageservice.cache.S3ObjectCache;
+import ru.kharevich.imageservice.exception.FileNotFoundException;
+import ru.kharevich.imageservice.service.S3AsyncStorageServiceContract;
+import ru.kharevich.imageservice.util.ConcurrencyUtils;
+import ru.kharevich.imageservice.util.S3Utils;
+import ru.kharevich.imageservice.util.properties.S3Properties;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Чтение объектов через S3AsyncClient: поток запроса не ждёт S3, результат приходит в CompletableFuture.
+ * Использует тот же кэш объектов, что и S3StorageService
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class S3AsyncStorageService implements S3AsyncStorageServiceContract {
+
+    private final S3AsyncClient s3AsyncClient;
+    private final S3Properties s3Properties;
+    private final S3ObjectCache s3ObjectCache;
+
+    /**
+     * FileNotFoundException - только при отсутствии ключа, остальные ошибки S3 приходят в future как есть
+     */
+    public CompletableFuture<byte[]> downloadFile(String filename) {
+        byte[] cached = s3ObjectCache.get(filename);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(s3Properties.getBucketName())
+                .key(filename)
+                .build();
+
+        return s3AsyncClient.getObject(getObjectRequest, AsyncResponseTransformer.toBytes())
+                .handle((response, throwable) -> {
+                    if (throwable != null) {
+                        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                                ? throwable.getCause()
+                                : throwable;
+                        if (cause instanceof S3Exception e && S3Utils.isNotFound(e)) {
+                            log.debug("File not found: {}", filename);
+                            throw new FileNotFoundException("File not found: " + filename);
+                        }
+                        log.error("Error downloading file {}: {}", filename, cause.getMessage());
+                        throw new CompletionException(cause);
+                    }
+                    byte[] content = response.asByteArrayUnsafe();
+                    s3ObjectCache.put(filename, content);
+                    return content;
+                });
+    }
+
+    /**
+     * Не более app.s3.download-concurrency одновременных запросов на один вызов, порядок сохраняется
+     */
+    public CompletableFuture<List<byte[]>> downloadFiles(List<String> filenames) {
+        return ConcurrencyUtils.mapConcurrentlyAsync(
+                filenames,
+                this::downloadFile,
+                s3Properties.getDownloadConcurrency()
+        );
+    }
+
+}
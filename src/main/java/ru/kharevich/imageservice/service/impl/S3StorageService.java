@@ -2,42 +2,72 @@ package ru.kharevich.imageservice.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import ru.kharevich.imageservice.cache.S3ObjectCache;
+import ru.kharevich.imageservice.dto.transferObjects.FileLinkEntity;
 import ru.kharevich.imageservice.dto.transferObjects.FileTransferEntity;
 import ru.kharevich.imageservice.exception.FileNotFoundException;
 import ru.kharevich.imageservice.exception.FileUploadException;
 import ru.kharevich.imageservice.exception.StaticIconUploadException;
 import ru.kharevich.imageservice.service.S3StorageServiceContract;
+import ru.kharevich.imageservice.util.ConcurrencyUtils;
 import ru.kharevich.imageservice.util.S3Utils;
 import ru.kharevich.imageservice.util.properties.S3Properties;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.Bucket;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
 import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
-import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListBucketsRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class S3StorageService implements S3StorageServiceContract {
 
+    private static final int DELETE_BATCH_SIZE = 1000;
+
     private final S3Client s3Client;
+    private final S3Presigner s3Presigner;
     private final S3Properties s3Properties;
+    @Qualifier("s3TaskExecutor")
+    private final ExecutorService s3TaskExecutor;
+    private final S3ObjectCache s3ObjectCache;
 
 
     public void createBucketIfNotExists() {
@@ -66,15 +96,21 @@ public class S3StorageService implements S3StorageServiceContract {
             String filename = customFilename != null ? customFilename :
                     UUID.randomUUID() + "_" + file.getOriginalFilename();
 
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(filename)
-                    .contentType(file.getContentType())
-                    .contentLength(file.getSize())
-                    .build();
-
-            s3Client.putObject(putObjectRequest,
-                    RequestBody.fromBytes(file.getBytes()));
+            if (file.getSize() >= s3Properties.getMultipartThreshold().toBytes()) {
+                uploadMultipart(file, filename);
+            } else {
+                PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(filename)
+                        .contentType(file.getContentType())
+                        .contentLength(file.getSize())
+                        .build();
+                try (InputStream content = file.getInputStream()) {
+                    s3Client.putObject(putObjectRequest,
+                            RequestBody.fromInputStream(content, file.getSize()));
+                }
+            }
+            s3ObjectCache.invalidate(filename);
             log.info("File uploaded successfully: {}", filename);
             return getFileUrl(filename);
 
@@ -84,7 +120,131 @@ public class S3StorageService implements S3StorageServiceContract {
         }
     }
 
+    public void uploadBytes(String filename, byte[] content, String contentType) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(s3Properties.getBucketName())
+                .key(filename)
+                .contentType(contentType)
+                .contentLength((long) content.length)
+                .build();
+
+        try {
+            s3Client.putObject(putObjectRequest, RequestBody.fromBytes(content));
+            s3ObjectCache.invalidate(filename);
+            log.info("File uploaded successfully: {}", filename);
+        } catch (S3Exception e) {
+            log.error("Error uploading file: {}", e.getMessage());
+            throw new FileUploadException("Failed to upload file");
+        }
+    }
+
+    /**
+     * Multipart upload для больших файлов: части читаются из потока последовательно и загружаются параллельно.
+     * В памяти одновременно не больше app.s3.multipart-concurrency частей размером app.s3.multipart-part-size.
+     * После ошибки любой части новые части не читаются и не отправляются: загрузка дожидается уже отправленных
+     * частей и отменяется
+     */
+    private void uploadMultipart(MultipartFile file, String filename) throws IOException {
+        String bucketName = s3Properties.getBucketName();
+        int partSize = (int) s3Properties.getMultipartPartSize().toBytes();
+
+        CreateMultipartUploadRequest createRequest = CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(filename)
+                .contentType(file.getContentType())
+                .build();
+        String uploadId = s3Client.createMultipartUpload(createRequest).uploadId();
+
+        Semaphore permits = new Semaphore(s3Properties.getMultipartConcurrency());
+        AtomicBoolean partFailed = new AtomicBoolean();
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        try (InputStream content = file.getInputStream()) {
+            while (!partFailed.get()) {
+                permits.acquire();
+                byte[] part = partFailed.get() ? new byte[0] : content.readNBytes(partSize);
+                if (part.length == 0) {
+                    permits.release();
+                    break;
+                }
+                int partNumber = parts.size() + 1;
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return uploadPart(filename, uploadId, partNumber, part);
+                    } catch (RuntimeException e) {
+                        partFailed.set(true);
+                        throw e;
+                    } finally {
+                        permits.release();
+                    }
+                }, s3TaskExecutor));
+            }
+            if (partFailed.get()) {
+                CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+                throw new FileUploadException("Failed to upload part of " + filename);
+            }
+
+            List<CompletedPart> completedParts = parts.stream()
+                    .map(CompletableFuture::join)
+                    .toList();
+            CompleteMultipartUploadRequest completeRequest = CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(filename)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder()
+                            .parts(completedParts)
+                            .build())
+                    .build();
+            s3Client.completeMultipartUpload(completeRequest);
+            log.info("Multipart upload completed: {}, parts: {}", filename, completedParts.size());
+
+        } catch (InterruptedException | RuntimeException | IOException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            parts.forEach(part -> part.cancel(true));
+            abortMultipartUpload(filename, uploadId);
+            throw new FileUploadException("Failed to upload file");
+        }
+    }
+
+    private CompletedPart uploadPart(String filename, String uploadId, int partNumber, byte[] part) {
+        UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                .bucket(s3Properties.getBucketName())
+                .key(filename)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) part.length)
+                .build();
+
+        String eTag = s3Client.uploadPart(uploadPartRequest, RequestBody.fromBytes(part)).eTag();
+        return CompletedPart.builder()
+                .partNumber(partNumber)
+                .eTag(eTag)
+                .build();
+    }
+
+    private void abortMultipartUpload(String filename, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(s3Properties.getBucketName())
+                    .key(filename)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (S3Exception e) {
+            log.error("Error aborting multipart upload {}: {}", filename, e.getMessage());
+        }
+    }
+
+    /**
+     * FileNotFoundException бросается только при отсутствии ключа; остальные ошибки S3 пробрасываются как есть,
+     * чтобы вызывающий код не принимал временный сбой за промах
+     */
     public byte[] downloadFile(String filename) {
+        byte[] cached = s3ObjectCache.get(filename);
+        if (cached != null) {
+            return cached;
+        }
+
         String bucketName = s3Properties.getBucketName();
         try {
             GetObjectRequest getObjectRequest = GetObjectRequest.builder()
@@ -92,11 +252,68 @@ public class S3StorageService implements S3StorageServiceContract {
                     .key(filename)
                     .build();
 
-            return s3Client.getObjectAsBytes(getObjectRequest).asByteArray();
+            byte[] content = s3Client.getObjectAsBytes(getObjectRequest).asByteArray();
+            s3ObjectCache.put(filename, content);
+            return content;
+
+        } catch (S3Exception e) {
+            if (S3Utils.isNotFound(e)) {
+                log.debug("File not found: {}", filename);
+                throw new FileNotFoundException("File not found: " + filename);
+            }
+            log.error("Error downloading file {}: {}", filename, e.getMessage());
+            throw e;
+        }
+    }
+
+    public List<byte[]> downloadFiles(List<String> filenames) {
+        return ConcurrencyUtils.mapConcurrently(
+                filenames,
+                this::downloadFile,
+                s3Properties.getDownloadConcurrency(),
+                s3TaskExecutor
+        );
+    }
+
+    public ResponseInputStream<GetObjectResponse> downloadFileAsStream(String filename) {
+        String bucketName = s3Properties.getBucketName();
+        try {
+            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(filename)
+                    .build();
+
+            return s3Client.getObject(getObjectRequest);
 
         } catch (S3Exception e) {
-            log.error("Error downloading file: {}", e.getMessage());
-            throw new FileNotFoundException("File not found: " + filename);
+            if (S3Utils.isNotFound(e)) {
+                throw new FileNotFoundException("File not found: " + filename);
+            }
+            log.error("Error opening file stream {}: {}", filename, e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Ranged GetObject: S3 отдаёт только байты с start по end включительно
+     */
+    public ResponseInputStream<GetObjectResponse> downloadFileRangeAsStream(String filename, long start, long end) {
+        String bucketName = s3Properties.getBucketName();
+        try {
+            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(filename)
+                    .range("bytes=%d-%d".formatted(start, end))
+                    .build();
+
+            return s3Client.getObject(getObjectRequest);
+
+        } catch (S3Exception e) {
+            if (S3Utils.isNotFound(e)) {
+                throw new FileNotFoundException("File not found: " + filename);
+            }
+            log.error("Error opening file range stream {}: {}", filename, e.getMessage());
+            throw e;
         }
     }
 
@@ -114,20 +331,26 @@ public class S3StorageService implements S3StorageServiceContract {
             if (listResponse.contents().isEmpty()) {
                 throw new StaticIconUploadException("there are no icons");
             }
+            List<String> iconKeys = new ArrayList<>();
             for (S3Object s3Object : listResponse.contents()) {
                 String s3Key = s3Object.key();
                 if (S3Utils.isSvgIcon(s3Key)) {
-                    try {
-                        byte[] fileContent = downloadFileByKey(s3Key);
-                        String fileName = S3Utils.extractFileName(s3Key);
-                        icons.add(new FileTransferEntity(fileContent, fileName));
-                    } catch (Exception e) {
-                        log.error("Failed to download icon: {}, error: {}", s3Key, e.getMessage());
-                    }
+                    iconKeys.add(s3Key);
                 } else {
                     log.debug("Skipping non-SVG file: {}", s3Key);
                 }
             }
+            ConcurrencyUtils.mapConcurrently(iconKeys, s3Key -> {
+                try {
+                    return new FileTransferEntity(downloadFileByKey(s3Key), S3Utils.extractFileName(s3Key));
+                } catch (Exception e) {
+                    log.error("Failed to download icon: {}, error: {}", s3Key, e.getMessage());
+                    return null;
+                }
+            }, s3Properties.getDownloadConcurrency(), s3TaskExecutor)
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .forEach(icons::add);
             return icons;
         } catch (S3Exception e) {
             log.error("S3 error while downloading SVG icons: {}", e.getMessage());
@@ -162,20 +385,82 @@ public class S3StorageService implements S3StorageServiceContract {
                 filename);
     }
 
-    public void deleteFile(String filename) {
+    /**
+     * Обратная операция к getFileUrl: ключ объекта из url или null, если url указывает не на наш бакет
+     */
+    public String getObjectKey(String url) {
+        String prefix = getFileUrl("");
+        if (url == null || !url.startsWith(prefix) || url.length() == prefix.length()) {
+            return null;
+        }
+        return url.substring(prefix.length());
+    }
+
+    public FileLinkEntity generatePresignedUrl(String filename) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(s3Properties.getBucketName())
+                .key(filename)
+                .build();
+
+        GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
+                .signatureDuration(s3Properties.getPresignedUrlTtl())
+                .getObjectRequest(getObjectRequest)
+                .build();
+
+        PresignedGetObjectRequest presigned = s3Presigner.presignGetObject(presignRequest);
+        return new FileLinkEntity(
+                presigned.url().toString(),
+                filename,
+                presigned.expiration()
+        );
+    }
+
+    /**
+     * Удаляет объекты пачками через DeleteObjects (до 1000 ключей за запрос)
+     */
+    public void deleteFiles(List<String> filenames) {
         String bucketName = s3Properties.getBucketName();
-        try {
-            DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(filename)
-                    .build();
+        for (int start = 0; start < filenames.size(); start += DELETE_BATCH_SIZE) {
+            List<String> batch = filenames.subList(start, Math.min(start + DELETE_BATCH_SIZE, filenames.size()));
+            try {
+                DeleteObjectsRequest deleteObjectsRequest = DeleteObjectsRequest.builder()
+                        .bucket(bucketName)
+                        .delete(Delete.builder()
+                                .objects(batch.stream()
+                                        .map(key -> ObjectIdentifier.builder().key(key).build())
+                                        .toList())
+                                .quiet(true)
+                                .build())
+                        .build();
 
-            s3Client.deleteObject(deleteObjectRequest);
-            log.info("File deleted: {}", filename);
+                DeleteObjectsResponse response = s3Client.deleteObjects(deleteObjectsRequest);
+                batch.forEach(s3ObjectCache::invalidate);
+                if (response.hasErrors() && !response.errors().isEmpty()) {
+                    response.errors().forEach(error ->
+                            log.error("Error deleting file {}: {}", error.key(), error.message()));
+                    throw new RuntimeException("Failed to delete " + response.errors().size() + " files");
+                }
+                log.info("Files deleted: {}", batch.size());
+
+            } catch (S3Exception e) {
+                log.error("Error deleting files: {}", e.getMessage());
+                throw new RuntimeException("Failed to delete files", e);
+            }
+        }
+    }
 
+    public boolean fileExists(String filename) {
+        try {
+            s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(s3Properties.getBucketName())
+                    .key(filename)
+                    .build());
+            return true;
         } catch (S3Exception e) {
-            log.error("Error deleting file: {}", e.getMessage());
-            throw new RuntimeException("Failed to delete file: " + filename, e);
+            if (S3Utils.isNotFound(e)) {
+                return false;
+            }
+            throw e;
         }
     }
 
@@ -189,8 +474,11 @@ public class S3StorageService implements S3StorageServiceContract {
 
             return s3Client.headObject(headObjectRequest);
         } catch (S3Exception e) {
-            log.error("Error getting file info: {}", e.getMessage());
-            throw new RuntimeException("File not found: " + filename, e);
+            if (S3Utils.isNotFound(e)) {
+                throw new FileNotFoundException("File not found: " + filename);
+            }
+            log.error("Error getting file info {}: {}", filename, e.getMessage());
+            throw e;
         }
     }
 
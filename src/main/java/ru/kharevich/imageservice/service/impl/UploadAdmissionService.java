@@ -0,0 +1,140 @@
+package ru.kharevich.imageservice.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import ru.kharevich.imageservice.exception.UploadRejectedException;
+import ru.kharevich.imageservice.util.properties.UploadAdmissionProperties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Допуск загрузок на узел: общий лимит байт в обработке (семафор в КиБ по Content-Length)
+ * и лимит одновременных загрузок на клиента. Сначала проверяется лимит клиента (429), затем байтовый (503);
+ * за байтовым лимитом загрузка ждёт не дольше app.images.upload.queue-timeout
+ */
+@Slf4j
+@Service
+public class UploadAdmissionService {
+
+    private static final long PERMIT_BYTES = 1024;
+
+    private final UploadAdmissionProperties properties;
+
+    private final Semaphore bytesInFlight;
+
+    private final int capacityPermits;
+
+    private final Map<String, Integer> clientUploads = new ConcurrentHashMap<>();
+
+    private final Counter clientLimitRejections;
+
+    private final Counter capacityRejections;
+
+    public UploadAdmissionService(UploadAdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.capacityPermits = (int) Math.min(Integer.MAX_VALUE,
+                Math.max(1, properties.getMaxBytesInFlight().toBytes() / PERMIT_BYTES));
+        this.bytesInFlight = new Semaphore(capacityPermits, true);
+        this.clientLimitRejections = rejections(meterRegistry, "client_limit");
+        this.capacityRejections = rejections(meterRegistry, "capacity");
+        Gauge.builder("image.upload.bytes.in.flight", bytesInFlight,
+                        semaphore -> (double) (capacityPermits - semaphore.availablePermits()) * PERMIT_BYTES)
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Резервирует место под загрузку размером contentLength байт или бросает UploadRejectedException.
+     * Загрузка больше всего лимита занимает его целиком. Permit нужно закрыть после обработки запроса
+     */
+    public Permit admit(String clientId, long contentLength) {
+        if (!properties.isEnabled()) {
+            return new Permit(null, 0);
+        }
+        if (!enterClient(clientId)) {
+            clientLimitRejections.increment();
+            throw new UploadRejectedException(
+                    "Too many concurrent uploads, at most %d allowed".formatted(properties.getMaxConcurrentPerClient()),
+                    HttpStatus.TOO_MANY_REQUESTS,
+                    properties.getRetryAfter());
+        }
+
+        int permits = (int) Math.min(capacityPermits, Math.max(1, (contentLength + PERMIT_BYTES - 1) / PERMIT_BYTES));
+        boolean acquired;
+        try {
+            acquired = bytesInFlight.tryAcquire(permits, properties.getQueueTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            leaveClient(clientId);
+            capacityRejections.increment();
+            log.warn("Upload of {} bytes from {} rejected: node is saturated", contentLength, clientId);
+            throw new UploadRejectedException(
+                    "Upload capacity exhausted, retry later",
+                    HttpStatus.SERVICE_UNAVAILABLE,
+                    properties.getRetryAfter());
+        }
+        return new Permit(clientId, permits);
+    }
+
+    private boolean enterClient(String clientId) {
+        AtomicBoolean admitted = new AtomicBoolean();
+        clientUploads.compute(clientId, (id, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= properties.getMaxConcurrentPerClient()) {
+                return count;
+            }
+            admitted.set(true);
+            return current + 1;
+        });
+        return admitted.get();
+    }
+
+    private void leaveClient(String clientId) {
+        clientUploads.computeIfPresent(clientId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("image.upload.rejected")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Повторное закрытие ничего не делает
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final String clientId;
+
+        private final int permits;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(String clientId, int permits) {
+            this.clientId = clientId;
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() {
+            if (clientId == null || !released.compareAndSet(false, true)) {
+                return;
+            }
+            bytesInFlight.release(permits);
+            leaveClient(clientId);
+        }
+    }
+
+}
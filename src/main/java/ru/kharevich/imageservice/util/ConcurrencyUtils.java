@@ -0,0 +1,129 @@
+package ru.kharevich.imageservice.util;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+@UtilityClass
+public class ConcurrencyUtils {
+
+    /**
+     * Применяет task к каждому элементу параллельно, но не более maxConcurrency задач одновременно.
+     * Разрешение берётся до отправки задачи в executor: на пуле обычных потоков иначе под каждый
+     * элемент заводился поток, который сразу засыпал на семафоре.
+     * Порядок результатов совпадает с порядком элементов.
+     * Если хотя бы одна задача упала, новые не отправляются, остальные отменяются, а исходное исключение пробрасывается дальше
+     */
+    public static <T, R> List<R> mapConcurrently(List<T> items, Function<T, R> task, int maxConcurrency, Executor executor) {
+        if (items.size() <= 1 || maxConcurrency <= 1) {
+            return items.stream().map(task).toList();
+        }
+
+        Semaphore permits = new Semaphore(maxConcurrency);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<R>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            permits.acquireUninterruptibly();
+            if (failed.get()) {
+                break;
+            }
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.apply(item);
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    throw e;
+                } finally {
+                    permits.release();
+                }
+            }, executor));
+        }
+
+        try {
+            return futures.stream()
+                    .map(CompletableFuture::join)
+                    .toList();
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Неблокирующий аналог mapConcurrently: не более maxConcurrency незавершённых future одновременно,
+     * следующая задача запускается по завершении предыдущей. Порядок результатов совпадает с порядком элементов
+     */
+    public static <T, R> CompletableFuture<List<R>> mapConcurrentlyAsync(List<T> items,
+                                                                        Function<T, CompletableFuture<R>> task,
+                                                                        int maxConcurrency) {
+        List<R> results = new ArrayList<>(Collections.nCopies(items.size(), null));
+        AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(Math.max(maxConcurrency, 1), items.size())];
+        for (int i = 0; i < lanes.length; i++) {
+            CompletableFuture<Void> lane = new CompletableFuture<>();
+            runLane(items, task, results, next, lane);
+            lanes[i] = lane;
+        }
+        return CompletableFuture.allOf(lanes).thenApply(ignored -> results);
+    }
+
+    /**
+     * Уже завершённые future (попадания в кэш) разбираются в цикле: рекурсия через thenCompose
+     * на тысячах таких элементов переполняла стек. Незавершённая future продолжает цикл из своего колбэка
+     */
+    private static <T, R> void runLane(List<T> items,
+                                       Function<T, CompletableFuture<R>> task,
+                                       List<R> results,
+                                       AtomicInteger next,
+                                       CompletableFuture<Void> lane) {
+        while (true) {
+            int index = next.getAndIncrement();
+            if (index >= items.size()) {
+                lane.complete(null);
+                return;
+            }
+            CompletableFuture<R> future;
+            try {
+                future = task.apply(items.get(index));
+            } catch (RuntimeException e) {
+                lane.completeExceptionally(e);
+                return;
+            }
+            if (!future.isDone()) {
+                future.whenComplete((result, error) -> {
+                    if (error != null) {
+                        lane.completeExceptionally(unwrap(error));
+                        return;
+                    }
+                    results.set(index, result);
+                    runLane(items, task, results, next, lane);
+                });
+                return;
+            }
+            try {
+                results.set(index, future.join());
+            } catch (CompletionException | CancellationException e) {
+                lane.completeExceptionally(unwrap(e));
+                return;
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+}
@@ -0,0 +1,124 @@
+package ru.kharevich.imageservice.util;
+
+import lombok.experimental.UtilityClass;
+import ru.kharevich.imageservice.dto.transferObjects.DecodedImage;
+import ru.kharevich.imageservice.dto.transferObjects.ResizedImage;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+@UtilityClass
+public class ImageResizer {
+
+    /**
+     * Источник прореживается при декодировании не сильнее, чем до удвоенного целевого размера,
+     * чтобы последующее уменьшение по половине сохраняло качество
+     */
+    private static final long SUBSAMPLING_MARGIN = 2;
+
+    /**
+     * Уменьшает изображение так, чтобы большая сторона была не больше maxSide.
+     * JPEG остаётся JPEG, остальные растровые форматы сохраняются в PNG.
+     * Возвращает null, если формат не читается ImageIO (например SVG) или в изображении больше maxPixels пикселей
+     */
+    public static ResizedImage resize(byte[] original, int maxSide, long maxPixels) {
+        try {
+            DecodedImage source = decode(original, maxPixels, maxSide);
+            if (source == null) {
+                return null;
+            }
+
+            boolean jpeg = "jpeg".equalsIgnoreCase(source.format());
+            BufferedImage scaled = scale(source.image(), maxSide, jpeg);
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(scaled, jpeg ? "jpeg" : "png", output);
+            return new ResizedImage(output.toByteArray(), jpeg ? "image/jpeg" : "image/png");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to resize image", e);
+        }
+    }
+
+    /**
+     * Декодирует изображение, сначала прочитав размеры из заголовка: файл в несколько килобайт может объявить
+     * картинку в гигапиксели, и ImageIO.read без проверки выделил бы под неё всю кучу.
+     * Источник, который заметно больше maxSide, читается с прореживанием строк и столбцов (source subsampling),
+     * поэтому в памяти оказывается уже уменьшенная картинка. Integer.MAX_VALUE в maxSide - декодировать без прореживания.
+     * Возвращает null, если формат не читается ImageIO, в изображении больше maxPixels пикселей
+     * или тело не декодируется при читаемом заголовке (CMYK JPEG, обрезанный файл)
+     */
+    public static DecodedImage decode(byte[] content, long maxPixels, int maxSide) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    return null;
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = (int) Math.max(1, Math.max(width, height) / (maxSide * SUBSAMPLING_MARGIN));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return new DecodedImage(reader.read(0, param), reader.getFormatName());
+            } catch (IOException | RuntimeException e) {
+                // повреждённые данные кодеки ImageIO сообщают и IIOException, и runtime-исключениями
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Имя формата по данным ImageIO ("png", "jpeg", "gif"...) или null, если формат не читается
+     */
+    public static String detectFormat(byte[] content) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            return readers.hasNext() ? readers.next().getFormatName() : null;
+        }
+    }
+
+    /**
+     * Уменьшение в несколько шагов по половине даёт заметно лучшее качество, чем один билинейный проход
+     */
+    private static BufferedImage scale(BufferedImage source, int maxSide, boolean opaque) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxSide / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+
+        BufferedImage current = source;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+}
@@ -0,0 +1,99 @@
+package ru.kharevich.imageservice.util;
+
+import lombok.experimental.UtilityClass;
+import ru.kharevich.imageservice.dto.transferObjects.DecodedImage;
+import ru.kharevich.imageservice.dto.transferObjects.ResizedImage;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+
+@UtilityClass
+public class ImageTranscoder {
+
+    public static final String COMPACT_CONTENT_TYPE = "image/jpeg";
+
+    /**
+     * JPEG уже сжат с потерями, у GIF при перекодировании пропала бы анимация
+     */
+    private static final Set<String> SKIPPED_FORMATS = Set.of("jpeg", "gif");
+
+    /**
+     * Перекодирует растровое изображение в JPEG с заданным качеством (0..1) штатным кодеком ImageIO, без нативных библиотек.
+     * Размеры проверяются по заголовку до декодирования, см. ImageResizer.decode.
+     * Возвращает null, если формат не читается ImageIO (SVG), уже JPEG или GIF, в изображении есть прозрачность
+     * или больше maxPixels пикселей
+     */
+    public static ResizedImage toCompact(byte[] original, float quality, long maxPixels) {
+        try {
+            String format = ImageResizer.detectFormat(original);
+            if (format == null || SKIPPED_FORMATS.contains(format.toLowerCase())) {
+                return null;
+            }
+            DecodedImage decoded = ImageResizer.decode(original, maxPixels, Integer.MAX_VALUE);
+            if (decoded == null || !isOpaque(decoded.image())) {
+                return null;
+            }
+            BufferedImage source = decoded.image();
+
+            BufferedImage rgb = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = rgb.createGraphics();
+            graphics.drawImage(source, 0, 0, null);
+            graphics.dispose();
+            return new ResizedImage(writeJpeg(rgb, quality), COMPACT_CONTENT_TYPE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to transcode image", e);
+        }
+    }
+
+    private static byte[] writeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * PNG со скриншотов часто RGBA, но с полностью непрозрачным альфа-каналом - такие перекодировать можно
+     */
+    private static boolean isOpaque(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return true;
+        }
+        Raster alpha = image.getAlphaRaster();
+        if (alpha == null) {
+            // палитра с прозрачным цветом
+            return false;
+        }
+        int max = (1 << alpha.getSampleModel().getSampleSize(0)) - 1;
+        int[] row = new int[alpha.getWidth()];
+        for (int y = 0; y < alpha.getHeight(); y++) {
+            alpha.getSamples(alpha.getMinX(), alpha.getMinY() + y, alpha.getWidth(), 1, 0, row);
+            for (int sample : row) {
+                if (sample != max) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+}
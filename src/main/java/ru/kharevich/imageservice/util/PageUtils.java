@@ -5,16 +5,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import ru.kharevich.imageservice.dto.response.ImageResponse;
 
 import java.util.List;
 
 @UtilityClass
 public class PageUtils {
 
-    public static Page<ImageResponse> convertListToPage(List<ImageResponse> imageList, int page, int size) {
+    public static <T> Page<T> convertListToPage(List<T> list, int page, int size) {
 
-        int totalElements = imageList.size();
+        int totalElements = list.size();
         int start = page * size;
         int end = Math.min(start + size, totalElements);
         if (start > totalElements) {
@@ -22,7 +21,7 @@ public class PageUtils {
             end = totalElements;
         }
 
-        List<ImageResponse> pageContent = imageList.subList(start, end);
+        List<T> pageContent = list.subList(start, end);
 
         Pageable pageable = PageRequest.of(page, size);
         return new PageImpl<>(
@@ -2,11 +2,20 @@ package ru.kharevich.imageservice.util;
 
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 @Slf4j
 @UtilityClass
 public class S3Utils {
 
+    /**
+     * Отсутствие ключа (404, NoSuchKey) - ожидаемый промах; 403, 5xx и троттлинг - ошибки S3
+     */
+    public static boolean isNotFound(S3Exception e) {
+        return e instanceof NoSuchKeyException || e.statusCode() == 404;
+    }
+
     /**
      * Извлекает имя файла из полного S3 ключа
      * Пример: "icons/heart.svg" -> "heart.svg"
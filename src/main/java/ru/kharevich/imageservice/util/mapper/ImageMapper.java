@@ -6,7 +6,11 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
 import ru.kharevich.imageservice.dto.request.ImageRequest;
+import ru.kharevich.imageservice.dto.response.FileResponse;
+import ru.kharevich.imageservice.dto.response.ImageLinkResponse;
 import ru.kharevich.imageservice.dto.response.ImageResponse;
+import ru.kharevich.imageservice.dto.response.ImageUploadResponse;
+import ru.kharevich.imageservice.dto.transferObjects.FileLinkEntity;
 import ru.kharevich.imageservice.dto.transferObjects.FileTransferEntity;
 import ru.kharevich.imageservice.model.Image;
 import ru.kharevich.imageservice.model.ImageType;
@@ -37,6 +41,13 @@ public interface ImageMapper {
         return result;
     }
 
-    Image toEntity(ImageRequest imageRequest, String url, String name);
+    ImageLinkResponse toLinkResponse(ImageType imageType, List<FileLinkEntity> files, UUID parentId);
+
+    ImageUploadResponse toUploadResponse(ImageType imageType, List<FileResponse> files, UUID parentId);
+
+    @Mapping(target = "filename", source = "image.name")
+    FileResponse toFileResponse(Image image, Long size, String contentType);
+
+    Image toEntity(ImageRequest imageRequest, String url, String name, String objectKey, String compactContentType);
 
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package ru.kharevich.imageservice.util.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Переводит метрики пула соединений SDK в Micrometer.
+ * SDK сообщает состояние пула после каждого запроса, поэтому gauge показывают последнее известное значение:
+ * s3.http.pool.leased / pending / available / max, а s3.http.pool.acquire - время ожидания соединения
+ */
+public class S3PoolMetricPublisher implements MetricPublisher {
+
+    private final AtomicInteger leased = new AtomicInteger();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final AtomicInteger available = new AtomicInteger();
+
+    private final AtomicInteger max = new AtomicInteger();
+
+    private final Timer acquireTimer;
+
+    public S3PoolMetricPublisher(MeterRegistry meterRegistry, String client) {
+        Tags tags = Tags.of("client", client);
+        registerGauge(meterRegistry, "s3.http.pool.leased", leased, tags, "Connections currently in use");
+        registerGauge(meterRegistry, "s3.http.pool.pending", pending, tags, "Requests waiting for a connection");
+        registerGauge(meterRegistry, "s3.http.pool.available", available, tags, "Idle connections in the pool");
+        registerGauge(meterRegistry, "s3.http.pool.max", max, tags, "Configured pool size");
+        this.acquireTimer = Timer.builder("s3.http.pool.acquire")
+                .description("Time spent waiting for a pooled connection")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void publish(MetricCollection metrics) {
+        metrics.metricValues(HttpMetric.LEASED_CONCURRENCY).forEach(leased::set);
+        metrics.metricValues(HttpMetric.PENDING_CONCURRENCY_ACQUIRES).forEach(pending::set);
+        metrics.metricValues(HttpMetric.AVAILABLE_CONCURRENCY).forEach(available::set);
+        metrics.metricValues(HttpMetric.MAX_CONCURRENCY).forEach(max::set);
+        metrics.metricValues(HttpMetric.CONCURRENCY_ACQUIRE_DURATION).forEach(acquireTimer::record);
+        metrics.children().forEach(this::publish);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static void registerGauge(MeterRegistry meterRegistry, String name, AtomicInteger value, Tags tags, String description) {
+        Gauge.builder(name, value, AtomicInteger::get)
+                .description(description)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+}
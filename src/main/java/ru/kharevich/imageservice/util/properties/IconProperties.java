@@ -0,0 +1,21 @@
+package ru.kharevich.imageservice.util.properties;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.icons")
+@Getter
+@NoArgsConstructor
+@Setter
+@Component
+public class IconProperties {
+
+    private Duration refreshInterval = Duration.ofMinutes(10);
+
+    private Duration maxAge = Duration.ofHours(1);
+}
@@ -0,0 +1,22 @@
+package ru.kharevich.imageservice.util.properties;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.images.http")
+@Getter
+@NoArgsConstructor
+@Setter
+@Component
+public class ImageHttpProperties {
+
+    /**
+     * Сколько клиент и CDN могут отдавать картинку без повторной проверки ETag
+     */
+    private Duration maxAge = Duration.ofMinutes(5);
+}
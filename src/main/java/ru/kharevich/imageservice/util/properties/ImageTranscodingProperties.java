@@ -0,0 +1,39 @@
+package ru.kharevich.imageservice.util.properties;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "app.images.transcoding")
+@Getter
+@NoArgsConstructor
+@Setter
+@Component
+public class ImageTranscodingProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Качество JPEG от 0 до 1
+     */
+    private float quality = 0.8f;
+
+    /**
+     * Файлы больше этого размера не перекодируются: декодированная картинка целиком лежит в памяти
+     */
+    private DataSize maxSourceSize = DataSize.ofMegabytes(20);
+
+    /**
+     * Изображения с большим числом пикселей (по заголовку файла) не перекодируются: сжатый файл может быть маленьким,
+     * а декодированный занимать гигабайты
+     */
+    private long maxSourcePixels = 16_000_000;
+
+    /**
+     * Компактная копия сохраняется, только если она не больше этой доли оригинала
+     */
+    private double maxSizeRatio = 0.9;
+}
@@ -0,0 +1,32 @@
+package ru.kharevich.imageservice.util.properties;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "app.images.variants")
+@Getter
+@NoArgsConstructor
+@Setter
+@Component
+public class ImageVariantProperties {
+
+    private List<Integer> sizes = List.of(64, 256, 1024);
+
+    private int processingQueueCapacity = 256;
+
+    /**
+     * Изображения с большим числом пикселей (по заголовку файла) не уменьшаются и отдаются как есть
+     */
+    private long maxSourcePixels = 50_000_000;
+
+    /**
+     * Retry-After для 503, когда очередь пула обработки изображений заполнена
+     */
+    private Duration overloadRetryAfter = Duration.ofSeconds(1);
+}
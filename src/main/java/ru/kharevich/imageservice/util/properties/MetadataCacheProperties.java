@@ -0,0 +1,29 @@
+package ru.kharevich.imageservice.util.properties;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.cache.metadata")
+@Getter
+@NoArgsConstructor
+@Setter
+@Component
+public class MetadataCacheProperties {
+
+    private boolean enabled = false;
+
+    private String keyPrefix = "image-service:metadata:";
+
+    private String invalidationChannel = "image-service:metadata:invalidation";
+
+    private Duration ttl = Duration.ofMinutes(10);
+
+    private long nearCacheMaxSize = 10_000;
+
+    private Duration nearCacheTtl = Duration.ofSeconds(30);
+}
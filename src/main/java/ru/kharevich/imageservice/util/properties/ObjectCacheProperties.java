@@ -0,0 +1,26 @@
+package ru.kharevich.imageservice.util.properties;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.cache.objects")
+@Getter
+@NoArgsConstructor
+@Setter
+@Component
+public class ObjectCacheProperties {
+
+    private boolean enabled = true;
+
+    private DataSize maxSize = DataSize.ofMegabytes(256);
+
+    private DataSize maxEntrySize = DataSize.ofMegabytes(2);
+
+    private Duration expireAfterAccess = Duration.ofHours(1);
+}
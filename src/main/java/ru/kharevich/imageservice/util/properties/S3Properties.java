@@ -6,6 +6,9 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
 
 @ConfigurationProperties(prefix = "app.s3")
 @Getter
@@ -23,4 +26,46 @@ public class S3Properties {
     private String secretKey;
 
     private String region;
+
+    private int downloadConcurrency = 8;
+
+    private int uploadConcurrency = 4;
+
+    private Duration presignedUrlTtl = Duration.ofMinutes(15);
+
+    private DataSize multipartThreshold = DataSize.ofMegabytes(16);
+
+    private DataSize multipartPartSize = DataSize.ofMegabytes(8);
+
+    private int multipartConcurrency = 4;
+
+    private int maxConnections = 200;
+
+    private Duration connectionAcquisitionTimeout = Duration.ofSeconds(10);
+
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+
+    private Duration socketTimeout = Duration.ofSeconds(30);
+
+    private Duration connectionTimeToLive = Duration.ofMinutes(5);
+
+    private Duration connectionMaxIdleTime = Duration.ofSeconds(60);
+
+    private boolean useIdleConnectionReaper = true;
+
+    private boolean tcpKeepAlive = true;
+
+    private int asyncMaxConcurrency = 256;
+
+    private int asyncMaxPendingConnectionAcquires = 10_000;
+
+    private Duration deletionPollInterval = Duration.ofSeconds(5);
+
+    private int deletionBatchSize = 1000;
+
+    private Duration deletionLease = Duration.ofMinutes(1);
+
+    private Duration deletionRetryBackoff = Duration.ofSeconds(2);
+
+    private Duration deletionMaxBackoff = Duration.ofMinutes(10);
 }
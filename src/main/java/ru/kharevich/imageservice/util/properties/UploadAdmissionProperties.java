@@ -0,0 +1,45 @@
+package ru.kharevich.imageservice.util.properties;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.images.upload")
+@Getter
+@NoArgsConstructor
+@Setter
+@Component
+public class UploadAdmissionProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Сколько байт загрузок (по Content-Length) узел обрабатывает одновременно; остальные получают 503
+     */
+    private DataSize maxBytesInFlight = DataSize.ofMegabytes(256);
+
+    /**
+     * Одновременных загрузок от одного клиента; сверх лимита - 429
+     */
+    private int maxConcurrentPerClient = 4;
+
+    /**
+     * Заголовок с идентификатором клиента (например, от gateway). Если не задан или отсутствует - адрес клиента
+     */
+    private String clientIdHeader;
+
+    /**
+     * Сколько загрузка может ждать освобождения байтового лимита, прежде чем получить 503
+     */
+    private Duration queueTimeout = Duration.ofMillis(500);
+
+    /**
+     * Значение Retry-After в отказах
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
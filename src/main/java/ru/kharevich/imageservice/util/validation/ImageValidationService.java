@@ -2,6 +2,7 @@ package ru.kharevich.imageservice.util.validation;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.kharevich.imageservice.model.Image;
 import ru.kharevich.imageservice.repository.ImageRepository;
 
@@ -13,14 +14,19 @@ public class ImageValidationService {
 
     private final ImageRepository imageRepository;
 
+    @Transactional(readOnly = true)
     public Image findByIdThrowsExceptionIfDoesntExist(UUID id, RuntimeException exception) {
         Image image = imageRepository.findById(id)
                 .orElseThrow(() -> exception);
         return image;
     }
 
-    public Image findByUrlThrowsExceptionIfDoesntExist(String url, RuntimeException exception) {
-        Image image = imageRepository.findByUrl(url)
+    @Transactional(readOnly = true)
+    public Image findByObjectKeyThrowsExceptionIfDoesntExist(String objectKey, RuntimeException exception) {
+        if (objectKey == null) {
+            throw exception;
+        }
+        Image image = imageRepository.findFirstByObjectKeyOrderByUploadedAtAscIdAsc(objectKey)
                 .orElseThrow(() -> exception);
         return image;
     }
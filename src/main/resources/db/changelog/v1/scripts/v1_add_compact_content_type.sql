@@ -0,0 +1,5 @@
+ALTER TABLE gallery.image_blobs
+    ADD COLUMN compact_content_type VARCHAR(255);
+GO
+ALTER TABLE gallery.images
+    ADD COLUMN compact_content_type VARCHAR(255);
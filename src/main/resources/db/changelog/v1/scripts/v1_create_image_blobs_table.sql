@@ -0,0 +1,23 @@
+CREATE TABLE gallery.image_blobs
+(
+    object_key   VARCHAR(500) PRIMARY KEY,
+    content_hash VARCHAR(64) UNIQUE,
+    content_type VARCHAR(255),
+    size_bytes   BIGINT,
+    ref_count    INTEGER NOT NULL DEFAULT 1,
+    created_at   TIMESTAMP        DEFAULT CURRENT_TIMESTAMP
+);
+GO
+ALTER TABLE gallery.images
+    ADD COLUMN object_key VARCHAR(500);
+GO
+UPDATE gallery.images
+SET object_key = name;
+GO
+ALTER TABLE gallery.images
+    ALTER COLUMN object_key SET NOT NULL;
+GO
+INSERT INTO gallery.image_blobs (object_key, ref_count)
+SELECT object_key, count(*)
+FROM gallery.images
+GROUP BY object_key;
@@ -0,0 +1,2 @@
+CREATE INDEX IF NOT EXISTS idx_images_object_key
+    ON gallery.images (object_key);
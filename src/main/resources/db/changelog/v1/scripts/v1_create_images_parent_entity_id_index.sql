@@ -0,0 +1,2 @@
+CREATE INDEX IF NOT EXISTS idx_images_parent_entity_id
+    ON gallery.images (parent_entity_id);
@@ -0,0 +1,11 @@
+CREATE TABLE gallery.object_deletion_outbox
+(
+    id              UUID PRIMARY KEY      DEFAULT gen_random_uuid(),
+    object_key      VARCHAR(500) NOT NULL,
+    attempts        INTEGER      NOT NULL DEFAULT 0,
+    created_at      TIMESTAMP             DEFAULT CURRENT_TIMESTAMP,
+    next_attempt_at TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+GO
+CREATE INDEX idx_object_deletion_outbox_next_attempt_at
+    ON gallery.object_deletion_outbox (next_attempt_at);
@@ -0,0 +1,5 @@
+ALTER TABLE gallery.images
+    DROP COLUMN compact_content_type;
+GO
+ALTER TABLE gallery.image_blobs
+    DROP COLUMN compact_content_type
\ No newline at end of file
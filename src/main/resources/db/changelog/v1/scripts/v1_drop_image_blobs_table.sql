@@ -0,0 +1,4 @@
+ALTER TABLE gallery.images
+    DROP COLUMN object_key;
+GO
+DROP TABLE gallery.image_blobs
\ No newline at end of file
@@ -0,0 +1 @@
+DROP INDEX IF EXISTS gallery.idx_images_object_key
\ No newline at end of file
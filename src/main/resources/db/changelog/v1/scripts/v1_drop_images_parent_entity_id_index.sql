@@ -0,0 +1 @@
+DROP INDEX IF EXISTS gallery.idx_images_parent_entity_id
\ No newline at end of file
@@ -0,0 +1 @@
+DROP TABLE gallery.object_deletion_outbox
\ No newline at end of file
@@ -0,0 +1,77 @@
+package ru.kharevich.imageservice.aspect;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.kharevich.imageservice.dto.request.ImageRequest;
+import ru.kharevich.imageservice.exception.FileNotFoundException;
+import ru.kharevich.imageservice.model.ImageType;
+import ru.kharevich.imageservice.service.impl.ImageServiceImpl;
+import ru.kharevich.imageservice.service.impl.S3AsyncStorageService;
+import ru.kharevich.imageservice.service.impl.S3StorageService;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MetricsAspectTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void s3Call_ShouldRecordTimerAndDownloadedPayloadSize() {
+        S3StorageService target = mock(S3StorageService.class);
+        when(target.downloadFile("a.png")).thenReturn(new byte[2048]);
+
+        proxy(target).downloadFile("a.png");
+
+        assertEquals(1, meterRegistry.get(MetricsAspect.S3_TIMER)
+                .tags("operation", "downloadFile", "client", "sync", "outcome", "success", "exception", "none")
+                .timer().count());
+        assertEquals(2048, meterRegistry.get(MetricsAspect.S3_PAYLOAD)
+                .tags("operation", "downloadFile", "direction", "download")
+                .summary().totalAmount());
+    }
+
+    @Test
+    void asyncS3Call_ShouldRecordTimerOnlyWhenFutureCompletes() {
+        S3AsyncStorageService target = mock(S3AsyncStorageService.class);
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        when(target.downloadFile("missing.png")).thenReturn(future);
+
+        CompletableFuture<byte[]> result = proxy(target).downloadFile("missing.png");
+        assertNull(meterRegistry.find(MetricsAspect.S3_TIMER).timer());
+
+        future.completeExceptionally(new FileNotFoundException("File not found: missing.png"));
+
+        assertEquals(future, result);
+        assertEquals(1, meterRegistry.get(MetricsAspect.S3_TIMER)
+                .tags("client", "async", "outcome", "error", "exception", "FileNotFoundException")
+                .timer().count());
+    }
+
+    @Test
+    void imageServiceCall_ShouldTagImageTypeFromRequest() {
+        ImageServiceImpl target = mock(ImageServiceImpl.class);
+        ImageRequest request = new ImageRequest(ImageType.AVATAR, UUID.randomUUID(), List.of());
+
+        proxy(target).save(request);
+
+        assertEquals(1, meterRegistry.get(MetricsAspect.SERVICE_TIMER)
+                .tags("operation", "save", "image.type", "AVATAR", "outcome", "success")
+                .timer().count());
+    }
+
+    private <T> T proxy(T target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new MetricsAspect(meterRegistry));
+        return factory.getProxy();
+    }
+
+}
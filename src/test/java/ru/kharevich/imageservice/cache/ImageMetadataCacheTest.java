@@ -0,0 +1,157 @@
+package ru.kharevich.imageservice.cache;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import ru.kharevich.imageservice.model.Image;
+import ru.kharevich.imageservice.model.ImageType;
+import ru.kharevich.imageservice.util.properties.MetadataCacheProperties;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Два экземпляра кэша изображают две реплики с общим Redis; вместо Redis - jedis-mock, говорящий по протоколу RESP
+ */
+class ImageMetadataCacheTest {
+
+    private static RedisServer redisServer;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private RedisMessageListenerContainer listenerContainer;
+
+    private ImageMetadataCache nodeA;
+
+    private ImageMetadataCache nodeB;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = RedisServer.newRedisServer().start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.getConnectionFactory().getConnection().serverCommands().flushAll();
+
+        MetadataCacheProperties properties = new MetadataCacheProperties();
+        properties.setEnabled(true);
+        JsonMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+        nodeA = new ImageMetadataCache(properties, redisTemplate, objectMapper, new SimpleMeterRegistry());
+        nodeB = new ImageMetadataCache(properties, redisTemplate, objectMapper, new SimpleMeterRegistry());
+
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.addMessageListener(nodeA, new ChannelTopic(properties.getInvalidationChannel()));
+        listenerContainer.addMessageListener(nodeB, new ChannelTopic(properties.getInvalidationChannel()));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        listenerContainer.destroy();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void getById_ShouldLoadFromDatabaseOnceForAllNodes() {
+        Image image = image(UUID.randomUUID(), "avatar.png");
+        AtomicInteger loads = new AtomicInteger();
+
+        Image fromA = nodeA.getById(image.getId(), () -> {
+            loads.incrementAndGet();
+            return image;
+        });
+        Image fromB = nodeB.getById(image.getId(), () -> fail("node B must read from Redis"));
+
+        assertEquals(1, loads.get());
+        assertEquals(image.getName(), fromA.getName());
+        assertEquals(image.getObjectKey(), fromB.getObjectKey());
+        assertEquals(image.getParentEntityId(), fromB.getParentEntityId());
+        assertEquals(image.getUploadedAt(), fromB.getUploadedAt());
+    }
+
+    @Test
+    void evict_ShouldDropNearCacheOnOtherNodes() throws InterruptedException {
+        Image image = image(UUID.randomUUID(), "avatar.png");
+        Image renamed = image(image.getId(), "renamed.png");
+        nodeA.getById(image.getId(), () -> image);
+        nodeB.getById(image.getId(), () -> image);
+
+        nodeA.evict(List.of(image.getId()), List.of(), List.of());
+
+        assertEquals("renamed.png", awaitName(() -> nodeB.getById(image.getId(), () -> renamed), "renamed.png"));
+    }
+
+    @Test
+    void getByParentIds_ShouldLoadOnlyParentsMissingInCache() {
+        UUID cachedParent = UUID.randomUUID();
+        UUID missingParent = UUID.randomUUID();
+        Image cachedImage = image(UUID.randomUUID(), "cached.png");
+        Image missingImage = image(UUID.randomUUID(), "missing.png");
+        nodeA.getByParentId(cachedParent, () -> List.of(cachedImage));
+
+        Map<UUID, List<Image>> result = nodeB.getByParentIds(List.of(cachedParent, missingParent), missing -> {
+            assertEquals(List.of(missingParent), missing);
+            return Map.of(missingParent, List.of(missingImage));
+        });
+
+        assertEquals("cached.png", result.get(cachedParent).getFirst().getName());
+        assertEquals("missing.png", result.get(missingParent).getFirst().getName());
+        assertTrue(nodeA.getByParentIds(List.of(missingParent), missing -> fail("must be cached")).containsKey(missingParent));
+    }
+
+    private static String awaitName(Supplier<Image> read, String expected) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        String name = read.get().getName();
+        while (!name.equals(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            name = read.get().getName();
+        }
+        return name;
+    }
+
+    private static Image image(UUID id, String name) {
+        return Image.builder()
+                .id(id)
+                .url("http://s3/bucket/blobs/" + name)
+                .name(name)
+                .objectKey("blobs/" + name)
+                .parentEntityId(UUID.randomUUID())
+                .imageType(ImageType.AVATAR)
+                .uploadedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS))
+                .build();
+    }
+
+}
@@ -0,0 +1,71 @@
+package ru.kharevich.imageservice.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import ru.kharevich.imageservice.util.properties.ObjectCacheProperties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class S3ObjectCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ObjectCacheProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new ObjectCacheProperties();
+        properties.setMaxSize(DataSize.ofKilobytes(64));
+        properties.setMaxEntrySize(DataSize.ofKilobytes(16));
+    }
+
+    @Test
+    void get_ShouldReturnCopyOfCachedContent() {
+        S3ObjectCache cache = new S3ObjectCache(properties, meterRegistry);
+        byte[] content = "avatar".getBytes();
+
+        cache.put("avatar.png", content);
+        byte[] first = cache.get("avatar.png");
+        byte[] second = cache.get("avatar.png");
+
+        assertArrayEquals(content, first);
+        assertNotSame(first, second);
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void put_ShouldSkipEntriesLargerThanMaxEntrySize() {
+        S3ObjectCache cache = new S3ObjectCache(properties, meterRegistry);
+
+        cache.put("large.png", new byte[(int) DataSize.ofKilobytes(17).toBytes()]);
+
+        assertNull(cache.get("large.png"));
+    }
+
+    @Test
+    void invalidate_ShouldRemoveEntry() {
+        S3ObjectCache cache = new S3ObjectCache(properties, meterRegistry);
+        cache.put("avatar.png", "avatar".getBytes());
+
+        cache.invalidate("avatar.png");
+
+        assertNull(cache.get("avatar.png"));
+    }
+
+    @Test
+    void get_ShouldReturnNull_WhenCacheDisabled() {
+        properties.setEnabled(false);
+        S3ObjectCache cache = new S3ObjectCache(properties, meterRegistry);
+
+        cache.put("avatar.png", "avatar".getBytes());
+
+        assertNull(cache.get("avatar.png"));
+    }
+
+}
@@ -0,0 +1,105 @@
+package ru.kharevich.imageservice.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.kharevich.imageservice.dto.transferObjects.FileTransferEntity;
+import ru.kharevich.imageservice.dto.transferObjects.IconBundle;
+import ru.kharevich.imageservice.service.impl.S3StorageService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SvgIconCacheTest {
+
+    @Mock
+    private S3StorageService s3StorageService;
+
+    @InjectMocks
+    private SvgIconCache svgIconCache;
+
+    @Test
+    void get_ShouldLoadIconsOnceAndServeFromMemory() {
+        when(s3StorageService.downloadSvgIcons()).thenReturn(List.of(
+                new FileTransferEntity("<svg/>".getBytes(), "heart.svg")
+        ));
+
+        IconBundle first = svgIconCache.get();
+        IconBundle second = svgIconCache.get();
+
+        assertSame(first, second);
+        verify(s3StorageService, times(1)).downloadSvgIcons();
+    }
+
+    @Test
+    void get_ShouldLoadIconsOnce_WhenManyCallersMissColdCache() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(s3StorageService.downloadSvgIcons()).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(new FileTransferEntity("<svg/>".getBytes(), "heart.svg"));
+        });
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<IconBundle>> results = new ArrayList<>();
+            results.add(executor.submit(svgIconCache::get));
+            loading.await(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(svgIconCache::get));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            IconBundle first = results.getFirst().get(5, TimeUnit.SECONDS);
+            for (Future<IconBundle> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+        }
+        verify(s3StorageService, times(1)).downloadSvgIcons();
+    }
+
+    @Test
+    void refresh_ShouldKeepEtag_WhenIconsDidNotChange() {
+        when(s3StorageService.downloadSvgIcons())
+                .thenReturn(List.of(
+                        new FileTransferEntity("<svg>a</svg>".getBytes(), "a.svg"),
+                        new FileTransferEntity("<svg>b</svg>".getBytes(), "b.svg")))
+                .thenReturn(List.of(
+                        new FileTransferEntity("<svg>b</svg>".getBytes(), "b.svg"),
+                        new FileTransferEntity("<svg>a</svg>".getBytes(), "a.svg")));
+
+        IconBundle first = svgIconCache.refresh();
+        IconBundle second = svgIconCache.refresh();
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void refresh_ShouldChangeEtag_WhenIconContentChanged() {
+        when(s3StorageService.downloadSvgIcons())
+                .thenReturn(List.of(new FileTransferEntity("<svg>a</svg>".getBytes(), "a.svg")))
+                .thenReturn(List.of(new FileTransferEntity("<svg>a2</svg>".getBytes(), "a.svg")));
+
+        IconBundle first = svgIconCache.refresh();
+        IconBundle second = svgIconCache.refresh();
+
+        assertNotEquals(first.etag(), second.etag());
+        assertEquals("a.svg", second.icons().getFirst().name());
+    }
+
+}
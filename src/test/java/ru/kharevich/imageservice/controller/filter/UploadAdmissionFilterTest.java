@@ -0,0 +1,162 @@
+package ru.kharevich.imageservice.controller.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
+import ru.kharevich.imageservice.controller.ex.GlobalExceptionHandler;
+import ru.kharevich.imageservice.service.impl.UploadAdmissionService;
+import ru.kharevich.imageservice.util.properties.UploadAdmissionProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UploadAdmissionFilterTest {
+
+    private static final String CLIENT = "127.0.0.1";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MultipartProperties multipartProperties = new MultipartProperties();
+
+    private UploadAdmissionService uploadAdmissionService;
+
+    private UploadAdmissionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        UploadAdmissionProperties properties = new UploadAdmissionProperties();
+        properties.setMaxBytesInFlight(DataSize.ofMegabytes(10));
+        properties.setMaxConcurrentPerClient(1);
+        properties.setQueueTimeout(Duration.ZERO);
+        properties.setRetryAfter(Duration.ofSeconds(3));
+        multipartProperties.setMaxRequestSize(DataSize.ofMegabytes(4));
+        uploadAdmissionService = new UploadAdmissionService(properties, meterRegistry);
+        filter = new UploadAdmissionFilter(uploadAdmissionService, properties, multipartProperties, exceptionResolver());
+    }
+
+    @Test
+    void doFilter_ShouldSkipAdmission_WhenRequestIsNotUpload() throws Exception {
+        for (MockHttpServletRequest request : List.of(
+                new MockHttpServletRequest("GET", "/api/v1/images"),
+                new MockHttpServletRequest("POST", "/api/v1/images/other"))) {
+            request.setServletPath(request.getRequestURI());
+            AtomicReference<Double> inFlight = new AtomicReference<>();
+
+            filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> inFlight.set(bytesInFlight()));
+
+            assertEquals(0, inFlight.get());
+        }
+    }
+
+    @Test
+    void doFilter_ShouldReserveContentLengthWhileChainRuns() throws Exception {
+        MockHttpServletRequest request = upload();
+        request.setContent(new byte[(int) DataSize.ofMegabytes(1).toBytes()]);
+        AtomicReference<Double> inFlight = new AtomicReference<>();
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> inFlight.set(bytesInFlight()));
+
+        assertEquals(DataSize.ofMegabytes(1).toBytes(), inFlight.get());
+        assertEquals(0, bytesInFlight());
+    }
+
+    @Test
+    void doFilter_ShouldChargeMaxRequestSize_WhenContentLengthIsUnknown() throws Exception {
+        AtomicReference<Double> inFlight = new AtomicReference<>();
+
+        filter.doFilter(upload(), new MockHttpServletResponse(), (req, res) -> inFlight.set(bytesInFlight()));
+
+        assertEquals(multipartProperties.getMaxRequestSize().toBytes(), inFlight.get());
+    }
+
+    @Test
+    void doFilter_ShouldReturnPermit_WhenChainThrows() {
+        FilterChain failingChain = (req, res) -> {
+            throw new ServletException("handler failed");
+        };
+
+        assertThrows(ServletException.class, () -> filter.doFilter(upload(), new MockHttpServletResponse(), failingChain));
+
+        assertEquals(0, bytesInFlight());
+        assertDoesNotThrow(() -> uploadAdmissionService.admit(CLIENT, 1024).close());
+    }
+
+    @Test
+    void doFilter_ShouldRespond429WithRetryAfter_WhenClientLimitReached() throws Exception {
+        AtomicBoolean chainCalled = new AtomicBoolean();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        try (UploadAdmissionService.Permit ignored = uploadAdmissionService.admit(CLIENT, 1024)) {
+            filter.doFilter(upload(), response, (req, res) -> chainCalled.set(true));
+        }
+
+        assertFalse(chainCalled.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+        assertEquals("3", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(response.getContentAsString().contains("Too many concurrent uploads"));
+    }
+
+    @Test
+    void doFilter_ShouldRespond503WithRetryAfter_WhenCapacityExhausted() throws Exception {
+        AtomicBoolean chainCalled = new AtomicBoolean();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockHttpServletRequest request = upload();
+        request.setContent(new byte[(int) DataSize.ofMegabytes(4).toBytes()]);
+
+        try (UploadAdmissionService.Permit ignored = uploadAdmissionService.admit("other-client", DataSize.ofMegabytes(8).toBytes())) {
+            filter.doFilter(request, response, (req, res) -> chainCalled.set(true));
+        }
+
+        assertFalse(chainCalled.get());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+        assertEquals("3", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(response.getContentAsString().contains("Upload capacity exhausted"));
+    }
+
+    private static MockHttpServletRequest upload() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/images");
+        request.setServletPath("/api/v1/images");
+        request.setRemoteAddr(CLIENT);
+        return request;
+    }
+
+    private double bytesInFlight() {
+        return meterRegistry.get("image.upload.bytes.in.flight").gauge().value();
+    }
+
+    /**
+     * Тот же путь, что и в приложении: @ExceptionHandler из GlobalExceptionHandler с JSON-телом ответа
+     */
+    private static ExceptionHandlerExceptionResolver exceptionResolver() {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.registerSingleton("globalExceptionHandler", GlobalExceptionHandler.class);
+        context.refresh();
+        ExceptionHandlerExceptionResolver resolver = new ExceptionHandlerExceptionResolver();
+        resolver.setMessageConverters(List.of(
+                new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build())));
+        resolver.setApplicationContext(context);
+        resolver.afterPropertiesSet();
+        return resolver;
+    }
+
+}
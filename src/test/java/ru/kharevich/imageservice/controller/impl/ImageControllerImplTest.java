@@ -0,0 +1,174 @@
+package ru.kharevich.imageservice.controller.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.kharevich.imageservice.controller.ex.GlobalExceptionHandler;
+import ru.kharevich.imageservice.dto.transferObjects.FileMetadata;
+import ru.kharevich.imageservice.dto.transferObjects.FileStreamEntity;
+import ru.kharevich.imageservice.service.ImageService;
+import ru.kharevich.imageservice.util.properties.IconProperties;
+import ru.kharevich.imageservice.util.properties.ImageHttpProperties;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class ImageControllerImplTest {
+
+    private static final UUID ID = UUID.randomUUID();
+
+    private static final String URL = "http://localhost:9000/images/blobs/a";
+
+    private static final byte[] CONTENT = "0123456789".getBytes();
+
+    private static final String ETAG = "\"abc\"";
+
+    private static final FileMetadata METADATA = new FileMetadata(
+            "blobs/a", "a.png", "image/png", CONTENT.length, ETAG, Instant.parse("2025-01-01T00:00:00Z"));
+
+    @Mock
+    private ImageService imageService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new ImageControllerImpl(imageService, new IconProperties(), new ImageHttpProperties()))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void streamImageById_ShouldReturn304WithoutReadingObject_WhenEtagMatches() throws Exception {
+        when(imageService.getMetadataById(ID, null, false)).thenReturn(METADATA);
+
+        mockMvc.perform(get("/api/v1/images/id/raw").param("id", ID.toString())
+                        .header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        verify(imageService, never()).stream(any());
+        verify(imageService, never()).streamRange(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    void streamImageById_ShouldReturn206WithContentRange_WhenSingleRangeRequested() throws Exception {
+        when(imageService.getMetadataById(ID, null, false)).thenReturn(METADATA);
+        when(imageService.streamRange(METADATA, 2, 5)).thenReturn(stream(Arrays.copyOfRange(CONTENT, 2, 6)));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/images/id/raw").param("id", ID.toString())
+                        .header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().bytes("2345".getBytes()));
+    }
+
+    @Test
+    void streamImageById_ShouldReturn416_WhenRangeIsNotSatisfiable() throws Exception {
+        when(imageService.getMetadataById(ID, null, false)).thenReturn(METADATA);
+
+        mockMvc.perform(get("/api/v1/images/id/raw").param("id", ID.toString())
+                        .header(HttpHeaders.RANGE, "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+
+        verify(imageService, never()).streamRange(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    void streamImageById_ShouldReturnFullBody_WhenSeveralRangesRequested() throws Exception {
+        when(imageService.getMetadataById(ID, null, false)).thenReturn(METADATA);
+        when(imageService.stream(METADATA)).thenReturn(stream(CONTENT));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/images/id/raw").param("id", ID.toString())
+                        .header(HttpHeaders.RANGE, "bytes=0-1,4-5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                .andExpect(content().bytes(CONTENT));
+        verify(imageService, never()).streamRange(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    void streamImageByUrl_ShouldReturnFullBody_WhenIfRangeDoesNotMatch() throws Exception {
+        when(imageService.getMetadataByUrl(URL, null, false)).thenReturn(METADATA);
+        when(imageService.stream(METADATA)).thenReturn(stream(CONTENT));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/images/url/raw").param("url", URL)
+                        .header(HttpHeaders.ACCEPT, "image/png")
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT));
+    }
+
+    @Test
+    void streamImageById_ShouldRequestCompactCopy_WhenAcceptListsJpegExplicitly() throws Exception {
+        assertCompactRequested("image/webp, image/jpeg;q=0.8", true);
+    }
+
+    @Test
+    void streamImageById_ShouldRequestOriginal_WhenAcceptIsWildcard() throws Exception {
+        assertCompactRequested("*/*", false);
+        assertCompactRequested("image/*", false);
+    }
+
+    @Test
+    void streamImageById_ShouldRequestOriginal_WhenJpegIsRefused() throws Exception {
+        assertCompactRequested("image/jpeg;q=0, */*", false);
+    }
+
+    private void assertCompactRequested(String accept, boolean compact) throws Exception {
+        when(imageService.getMetadataById(ID, null, compact)).thenReturn(METADATA);
+
+        mockMvc.perform(get("/api/v1/images/id/raw").param("id", ID.toString())
+                        .header(HttpHeaders.ACCEPT, accept)
+                        .header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isNotModified());
+
+        verify(imageService, atLeastOnce()).getMetadataById(ID, null, compact);
+        verify(imageService, never()).getMetadataById(ID, null, !compact);
+    }
+
+    private static FileStreamEntity stream(byte[] content) {
+        return new FileStreamEntity(new ByteArrayInputStream(content), "a.png", "image/png", (long) content.length);
+    }
+
+}
@@ -0,0 +1,81 @@
+package ru.kharevich.imageservice.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.kharevich.imageservice.model.ImageBlob;
+import ru.kharevich.imageservice.support.EmbeddedPostgresRepositoryTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageBlobRepositoryTest extends EmbeddedPostgresRepositoryTest {
+
+    private static final String HASH = "a".repeat(64);
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Test
+    void register_ShouldInsertBlobWithSingleReference() {
+        ImageBlob blob = imageBlobRepository.register("blobs/a-1", HASH, "image/png", 10, "image/jpeg");
+
+        assertEquals("blobs/a-1", blob.getObjectKey());
+        assertEquals(1, blob.getRefCount());
+        assertEquals("image/jpeg", blob.getCompactContentType());
+    }
+
+    @Test
+    void register_ShouldReferenceExistingBlob_WhenSameHashWasRegisteredConcurrently() {
+        imageBlobRepository.register("blobs/a-1", HASH, "image/png", 10, null);
+
+        ImageBlob blob = imageBlobRepository.register("blobs/a-2", HASH, "image/png", 10, null);
+
+        assertEquals("blobs/a-1", blob.getObjectKey());
+        assertEquals(2, blob.getRefCount());
+        assertEquals(1, imageBlobRepository.count());
+    }
+
+    @Test
+    void acquire_ShouldReturnEmptyList_WhenHashIsUnknown() {
+        assertTrue(imageBlobRepository.acquire(HASH).isEmpty());
+    }
+
+    @Test
+    void acquire_ShouldIncrementReferenceCount() {
+        imageBlobRepository.register("blobs/a-1", HASH, "image/png", 10, null);
+
+        List<ImageBlob> acquired = imageBlobRepository.acquire(HASH);
+
+        assertEquals(1, acquired.size());
+        assertEquals(2, acquired.getFirst().getRefCount());
+    }
+
+    @Test
+    void deleteUnreferenced_ShouldDeleteOnlyBlobsWithoutReferences() {
+        imageBlobRepository.register("blobs/a-1", HASH, "image/png", 10, null);
+        imageBlobRepository.acquire(HASH);
+        imageBlobRepository.register("blobs/b-1", "b".repeat(64), "image/png", 10, null);
+
+        assertEquals(1, imageBlobRepository.release("blobs/a-1", 1));
+        assertEquals(1, imageBlobRepository.release("blobs/b-1", 1));
+        List<String> deleted = imageBlobRepository.deleteUnreferenced(List.of("blobs/a-1", "blobs/b-1"));
+
+        assertEquals(List.of("blobs/b-1"), deleted);
+        assertEquals(1, imageBlobRepository.findById("blobs/a-1").orElseThrow().getRefCount());
+        assertTrue(imageBlobRepository.findById("blobs/b-1").isEmpty());
+    }
+
+    @Test
+    void release_ShouldSubtractSeveralReferencesAtOnce() {
+        imageBlobRepository.register("blobs/a-1", HASH, "image/png", 10, null);
+        imageBlobRepository.acquire(HASH);
+        imageBlobRepository.acquire(HASH);
+
+        imageBlobRepository.release("blobs/a-1", 3);
+
+        assertEquals(List.of("blobs/a-1"), imageBlobRepository.deleteUnreferenced(List.of("blobs/a-1")));
+    }
+
+}
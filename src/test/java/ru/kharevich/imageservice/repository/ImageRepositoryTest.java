@@ -0,0 +1,79 @@
+package ru.kharevich.imageservice.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.kharevich.imageservice.model.Image;
+import ru.kharevich.imageservice.model.ImageType;
+import ru.kharevich.imageservice.support.EmbeddedPostgresRepositoryTest;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageRepositoryTest extends EmbeddedPostgresRepositoryTest {
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Test
+    void deleteByParentEntityIdReturningImages_ShouldDeleteAndReturnOnlyParentImages() {
+        UUID parentId = UUID.randomUUID();
+        UUID otherParentId = UUID.randomUUID();
+        Image first = imageRepository.save(image(parentId, "blobs/a"));
+        Image second = imageRepository.save(image(parentId, "blobs/b"));
+        Image other = imageRepository.save(image(otherParentId, "blobs/a"));
+
+        List<Image> deleted = imageRepository.deleteByParentEntityIdReturningImages(parentId);
+
+        assertEquals(Set.of(first.getId(), second.getId()), deleted.stream().map(Image::getId).collect(Collectors.toSet()));
+        assertEquals(Set.of("blobs/a", "blobs/b"), deleted.stream().map(Image::getObjectKey).collect(Collectors.toSet()));
+        assertTrue(imageRepository.findByParentEntityId(parentId).isEmpty());
+        assertEquals(List.of(other.getId()), imageRepository.findByParentEntityId(otherParentId).stream().map(Image::getId).toList());
+    }
+
+    @Test
+    void deleteByParentEntityIdReturningImages_ShouldReturnEmptyList_WhenParentHasNoImages() {
+        assertTrue(imageRepository.deleteByParentEntityIdReturningImages(UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    void findFirstByObjectKey_ShouldReturnEarliestUpload_WhenTwoParentsUploadedSameContent() {
+        Image earlier = imageRepository.save(image(UUID.randomUUID(), "blobs/a"));
+        Image later = imageRepository.save(image(UUID.randomUUID(), "blobs/a"));
+        jdbcTemplate.update("UPDATE gallery.images SET uploaded_at = uploaded_at + INTERVAL '1 second' WHERE id = ?", later.getId());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(earlier.getId(), imageRepository.findFirstByObjectKeyOrderByUploadedAtAscIdAsc("blobs/a").orElseThrow().getId());
+        }
+
+        imageRepository.deleteByParentEntityIdReturningImages(earlier.getParentEntityId());
+
+        assertEquals(later.getId(), imageRepository.findFirstByObjectKeyOrderByUploadedAtAscIdAsc("blobs/a").orElseThrow().getId());
+    }
+
+    @Test
+    void findFirstByObjectKey_ShouldBreakTieById_WhenUploadedAtIsEqual() {
+        Image first = imageRepository.save(image(UUID.randomUUID(), "blobs/a"));
+        Image second = imageRepository.save(image(UUID.randomUUID(), "blobs/a"));
+        jdbcTemplate.update("UPDATE gallery.images SET uploaded_at = TIMESTAMP '2025-01-01 00:00:00'");
+        // Postgres сравнивает uuid побайтово без знака, как строки в hex, а не как UUID.compareTo
+        UUID smallerId = first.getId().toString().compareTo(second.getId().toString()) < 0 ? first.getId() : second.getId();
+
+        assertEquals(smallerId, imageRepository.findFirstByObjectKeyOrderByUploadedAtAscIdAsc("blobs/a").orElseThrow().getId());
+    }
+
+    private static Image image(UUID parentId, String objectKey) {
+        return Image.builder()
+                .url("http://localhost:4566/images-bucket/" + objectKey)
+                .name("photo.png")
+                .objectKey(objectKey)
+                .parentEntityId(parentId)
+                .imageType(ImageType.AVATAR)
+                .build();
+    }
+
+}
@@ -0,0 +1,97 @@
+package ru.kharevich.imageservice.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.kharevich.imageservice.model.ObjectDeletionTask;
+import ru.kharevich.imageservice.support.EmbeddedPostgresRepositoryTest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjectDeletionTaskRepositoryTest extends EmbeddedPostgresRepositoryTest {
+
+    private static final long LEASE_SECONDS = 60;
+
+    @Autowired
+    private ObjectDeletionTaskRepository objectDeletionTaskRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void claimBatch_ShouldLeaseClaimedTasksAndCountAttempts() {
+        enqueue("a", "b", "c");
+
+        List<ObjectDeletionTask> first = objectDeletionTaskRepository.claimBatch(2, LEASE_SECONDS);
+        List<ObjectDeletionTask> second = objectDeletionTaskRepository.claimBatch(10, LEASE_SECONDS);
+
+        assertEquals(2, first.size());
+        assertEquals(1, second.size());
+        assertTrue(first.stream().allMatch(task -> task.getAttempts() == 1));
+        assertTrue(objectDeletionTaskRepository.claimBatch(10, LEASE_SECONDS).isEmpty());
+    }
+
+    @Test
+    void claimBatch_ShouldReturnTaskAgain_WhenLeaseExpired() {
+        enqueue("a");
+
+        objectDeletionTaskRepository.claimBatch(10, 0);
+        List<ObjectDeletionTask> reclaimed = objectDeletionTaskRepository.claimBatch(10, 0);
+
+        assertEquals(1, reclaimed.size());
+        assertEquals(2, reclaimed.getFirst().getAttempts());
+    }
+
+    @Test
+    void claimBatch_ShouldSkipTasksLockedByAnotherNode() {
+        enqueue("a", "b", "c");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Set<String> claimedConcurrently = transaction.execute(status -> {
+            Set<String> claimedHere = objectKeys(objectDeletionTaskRepository.claimBatch(2, LEASE_SECONDS));
+            // до коммита строки заблокированы: второй узел должен их пропустить, а не ждать
+            Set<String> claimedByOther = CompletableFuture
+                    .supplyAsync(() -> objectKeys(objectDeletionTaskRepository.claimBatch(10, LEASE_SECONDS)))
+                    .orTimeout(10, TimeUnit.SECONDS)
+                    .join();
+            assertEquals(2, claimedHere.size());
+            assertTrue(claimedByOther.stream().noneMatch(claimedHere::contains));
+            return claimedByOther;
+        });
+
+        assertEquals(1, claimedConcurrently.size());
+        assertTrue(objectDeletionTaskRepository.claimBatch(10, LEASE_SECONDS).isEmpty());
+    }
+
+    @Test
+    void reschedule_ShouldPostponeTasksWithoutCountingAttempt() {
+        enqueue("a");
+        List<UUID> ids = objectDeletionTaskRepository.claimBatch(10, 0).stream().map(ObjectDeletionTask::getId).toList();
+
+        assertEquals(1, objectDeletionTaskRepository.reschedule(ids, LEASE_SECONDS));
+
+        assertTrue(objectDeletionTaskRepository.claimBatch(10, LEASE_SECONDS).isEmpty());
+        assertEquals(1, objectDeletionTaskRepository.findById(ids.getFirst()).orElseThrow().getAttempts());
+    }
+
+    private void enqueue(String... objectKeys) {
+        objectDeletionTaskRepository.saveAll(Arrays.stream(objectKeys)
+                .map(objectKey -> ObjectDeletionTask.builder().objectKey(objectKey).build())
+                .toList());
+    }
+
+    private static Set<String> objectKeys(List<ObjectDeletionTask> tasks) {
+        return tasks.stream().map(ObjectDeletionTask::getObjectKey).collect(Collectors.toSet());
+    }
+
+}
@@ -0,0 +1,181 @@
+package ru.kharevich.imageservice.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.mock.web.MockMultipartFile;
+import ru.kharevich.imageservice.model.ImageBlob;
+import ru.kharevich.imageservice.model.ObjectDeletionTask;
+import ru.kharevich.imageservice.repository.ImageBlobRepository;
+import ru.kharevich.imageservice.repository.ObjectDeletionTaskRepository;
+import ru.kharevich.imageservice.util.properties.ImageTranscodingProperties;
+import ru.kharevich.imageservice.util.properties.S3Properties;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImageBlobServiceTest {
+
+    private static final String HELLO_SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @Mock
+    private ImageBlobRepository imageBlobRepository;
+
+    @Mock
+    private ObjectDeletionTaskRepository objectDeletionTaskRepository;
+
+    @Mock
+    private S3StorageService s3StorageService;
+
+    @Mock
+    private ImageVariantService imageVariantService;
+
+    @Mock
+    private ExecutorService s3TaskExecutor;
+
+    private final ImageTranscodingProperties imageTranscodingProperties = new ImageTranscodingProperties();
+
+    private ImageBlobService imageBlobService;
+
+    private final MockMultipartFile file = new MockMultipartFile("files", "hello.png", "image/png", "hello".getBytes());
+
+    @BeforeEach
+    void setUp() {
+        imageBlobService = new ImageBlobService(imageBlobRepository, objectDeletionTaskRepository,
+                s3StorageService, imageVariantService, new S3Properties(), imageTranscodingProperties, s3TaskExecutor);
+    }
+
+    @Test
+    void store_ShouldSkipUpload_WhenSameContentAlreadyStored() {
+        when(imageBlobRepository.acquire(HELLO_SHA256)).thenReturn(List.of(blob("blobs/" + HELLO_SHA256 + "-1", null)));
+
+        ImageBlob blob = imageBlobService.store(file);
+
+        assertEquals("blobs/" + HELLO_SHA256 + "-1", blob.getObjectKey());
+        verify(s3StorageService, never()).uploadFile(any(), anyString());
+        verify(imageBlobRepository, never()).register(anyString(), anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void store_ShouldUploadUnderContentAddressedKeyThenRegister_WhenContentIsNew() {
+        when(imageBlobRepository.acquire(HELLO_SHA256)).thenReturn(List.of());
+        when(imageBlobRepository.register(anyString(), eq(HELLO_SHA256), eq("image/png"), eq(5L), isNull()))
+                .thenAnswer(invocation -> blob(invocation.getArgument(0), null));
+
+        String key = imageBlobService.store(file).getObjectKey();
+
+        assertTrue(key.startsWith("blobs/" + HELLO_SHA256 + "-"));
+        verify(s3StorageService).uploadFile(file, key);
+        verify(s3StorageService, never()).deleteFiles(List.of(key));
+        verify(imageVariantService, never()).createCompact(anyString(), any());
+    }
+
+    @Test
+    void store_ShouldDeleteUploadedObject_WhenRegistrationFails() {
+        when(imageBlobRepository.acquire(HELLO_SHA256)).thenReturn(List.of());
+        when(imageBlobRepository.register(anyString(), eq(HELLO_SHA256), eq("image/png"), eq(5L), isNull()))
+                .thenThrow(new QueryTimeoutException("statement timeout"));
+
+        assertThrows(QueryTimeoutException.class, () -> imageBlobService.store(file));
+
+        verify(s3StorageService).deleteFiles(argThat(keys -> keys.size() == 1
+                && keys.getFirst().startsWith("blobs/" + HELLO_SHA256 + "-")));
+        verify(objectDeletionTaskRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void store_ShouldEnqueueDeletion_WhenRegistrationAndImmediateDeleteFail() {
+        when(imageBlobRepository.acquire(HELLO_SHA256)).thenReturn(List.of());
+        when(imageBlobRepository.register(anyString(), eq(HELLO_SHA256), eq("image/png"), eq(5L), isNull()))
+                .thenThrow(new QueryTimeoutException("statement timeout"));
+        doThrow(new RuntimeException("Failed to delete files")).when(s3StorageService).deleteFiles(any());
+
+        assertThrows(QueryTimeoutException.class, () -> imageBlobService.store(file));
+
+        verify(objectDeletionTaskRepository).saveAll(argThat((List<ObjectDeletionTask> tasks) -> tasks.size() == 1
+                && tasks.getFirst().getObjectKey().startsWith("blobs/" + HELLO_SHA256 + "-")));
+    }
+
+    @Test
+    void store_ShouldRegisterCompactCopy_WhenTranscodingEnabled() {
+        imageTranscodingProperties.setEnabled(true);
+        when(imageBlobRepository.acquire(HELLO_SHA256)).thenReturn(List.of());
+        when(imageVariantService.createCompact(anyString(), eq("hello".getBytes()))).thenReturn("image/jpeg");
+        when(imageBlobRepository.register(anyString(), eq(HELLO_SHA256), eq("image/png"), eq(5L), eq("image/jpeg")))
+                .thenAnswer(invocation -> blob(invocation.getArgument(0), invocation.getArgument(4)));
+
+        ImageBlob blob = imageBlobService.store(file);
+
+        assertEquals("image/jpeg", blob.getCompactContentType());
+        verify(imageVariantService).createCompact(blob.getObjectKey(), "hello".getBytes());
+    }
+
+    @Test
+    void store_ShouldKeepOriginal_WhenTranscodingFails() {
+        imageTranscodingProperties.setEnabled(true);
+        when(imageBlobRepository.acquire(HELLO_SHA256)).thenReturn(List.of());
+        when(imageVariantService.createCompact(anyString(), any())).thenThrow(new IllegalStateException("codec failure"));
+        when(imageBlobRepository.register(anyString(), eq(HELLO_SHA256), eq("image/png"), eq(5L), isNull()))
+                .thenAnswer(invocation -> blob(invocation.getArgument(0), null));
+
+        ImageBlob blob = imageBlobService.store(file);
+
+        assertNull(blob.getCompactContentType());
+        verify(s3StorageService).uploadFile(file, blob.getObjectKey());
+    }
+
+    @Test
+    void store_ShouldDropOwnCopy_WhenConcurrentUploadRegisteredFirst() {
+        when(imageBlobRepository.acquire(HELLO_SHA256)).thenReturn(List.of());
+        when(imageBlobRepository.register(anyString(), eq(HELLO_SHA256), eq("image/png"), eq(5L), isNull()))
+                .thenReturn(blob("blobs/winner", null));
+
+        String key = imageBlobService.store(file).getObjectKey();
+
+        assertEquals("blobs/winner", key);
+        verify(s3StorageService).deleteFiles(argThat((List<String> keys) ->
+                keys.size() == 1 && keys.getFirst().startsWith("blobs/" + HELLO_SHA256 + "-")));
+    }
+
+    @Test
+    void release_ShouldDecrementOncePerReferenceAndEnqueueOnlyUnreferencedObjects() {
+        when(imageBlobRepository.deleteUnreferenced(Set.of("blobs/a", "blobs/b"))).thenReturn(List.of("blobs/b"));
+        when(imageVariantService.objectKeys("blobs/b")).thenReturn(List.of("blobs/b", "blobs/b_64px"));
+
+        imageBlobService.release(List.of("blobs/a", "blobs/b", "blobs/a"));
+
+        verify(imageBlobRepository).release("blobs/a", 2);
+        verify(imageBlobRepository).release("blobs/b", 1);
+        verify(objectDeletionTaskRepository).saveAll(argThat((List<ObjectDeletionTask> tasks) ->
+                tasks.stream().map(ObjectDeletionTask::getObjectKey).toList().equals(List.of("blobs/b", "blobs/b_64px"))));
+    }
+
+    private static ImageBlob blob(String objectKey, String compactContentType) {
+        return ImageBlob.builder()
+                .objectKey(objectKey)
+                .contentHash(HELLO_SHA256)
+                .compactContentType(compactContentType)
+                .build();
+    }
+
+}
@@ -1,47 +1,69 @@
 package ru.kharevich.imageservice.service.impl;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.web.multipart.MultipartFile;
+import ru.kharevich.imageservice.cache.ImageMetadataCache;
+import ru.kharevich.imageservice.cache.SvgIconCache;
 import ru.kharevich.imageservice.dto.request.ImageRequest;
+import ru.kharevich.imageservice.dto.response.FileResponse;
+import ru.kharevich.imageservice.dto.response.ImageLinkResponse;
 import ru.kharevich.imageservice.dto.response.ImageResponse;
+import ru.kharevich.imageservice.dto.response.ImageUploadResponse;
 import ru.kharevich.imageservice.dto.response.PageableResponse;
+import ru.kharevich.imageservice.dto.transferObjects.FileLinkEntity;
+import ru.kharevich.imageservice.dto.transferObjects.FileMetadata;
+import ru.kharevich.imageservice.dto.transferObjects.FileStreamEntity;
 import ru.kharevich.imageservice.dto.transferObjects.FileTransferEntity;
+import ru.kharevich.imageservice.dto.transferObjects.IconBundle;
 import ru.kharevich.imageservice.exception.ImageNotFoundException;
 import ru.kharevich.imageservice.model.Image;
+import ru.kharevich.imageservice.model.ImageBlob;
 import ru.kharevich.imageservice.model.ImageType;
 import ru.kharevich.imageservice.repository.ImageRepository;
-import ru.kharevich.imageservice.util.PageUtils;
 import ru.kharevich.imageservice.util.mapper.ImageMapper;
 import ru.kharevich.imageservice.util.mapper.PageMapper;
 import ru.kharevich.imageservice.util.validation.ImageValidationService;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
-import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -63,15 +85,49 @@ class ImageServiceImplTest {
     @Mock
     private S3StorageService s3StorageService;
 
+    @Mock
+    private S3AsyncStorageService s3AsyncStorageService;
+
     @Mock
     private ImageValidationService imageValidationService;
 
     @Mock
     private PageMapper pageMapper;
 
+    @Mock
+    private SvgIconCache svgIconCache;
+
+    @Mock
+    private ImageVariantService imageVariantService;
+
+    @Mock
+    private ImageBlobService imageBlobService;
+
+    @Mock
+    private ImageMetadataCache imageMetadataCache;
+
+    @Mock
+    private ExecutorService s3TaskExecutor;
+
     @InjectMocks
     private ImageServiceImpl imageService;
 
+    /**
+     * Кэш метаданных пропускает все чтения в loader, его поведение проверяется в ImageMetadataCacheTest
+     */
+    @BeforeEach
+    void setUp() {
+        lenient().when(imageMetadataCache.getById(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Image>>getArgument(1).get());
+        lenient().when(imageMetadataCache.getByObjectKey(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Image>>getArgument(1).get());
+        lenient().when(imageMetadataCache.getByParentId(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<List<Image>>>getArgument(1).get());
+        lenient().when(imageMetadataCache.getByParentIds(any(), any()))
+                .thenAnswer(invocation -> invocation.<Function<List<UUID>, Map<UUID, List<Image>>>>getArgument(1)
+                        .apply(invocation.getArgument(0)));
+    }
+
     @Test
     void getById_ShouldReturnImageResponse_WhenImageExists() {
         UUID id = UUID.randomUUID();
@@ -85,7 +141,7 @@ class ImageServiceImplTest {
 
         when(imageValidationService.findByIdThrowsExceptionIfDoesntExist(eq(id), any(ImageNotFoundException.class)))
                 .thenReturn(image);
-        when(s3StorageService.downloadFile(image.getName())).thenReturn(fileBytes);
+        when(s3AsyncStorageService.downloadFile(image.getName())).thenReturn(CompletableFuture.completedFuture(fileBytes));
         when(imageMapper.toResponse(
                 eq(image.getImageType()),
                 eq(Collections.singletonList(fileBytes)),
@@ -93,12 +149,43 @@ class ImageServiceImplTest {
                 eq(image.getParentEntityId())
         )).thenReturn(expectedResponse);
 
-        ImageResponse result = imageService.getById(id);
+        ImageResponse result = imageService.getById(id, null).join();
 
         assertNotNull(result);
         assertEquals(expectedResponse, result);
         verify(imageValidationService).findByIdThrowsExceptionIfDoesntExist(eq(id), any(ImageNotFoundException.class));
-        verify(s3StorageService).downloadFile(image.getName());
+        verify(s3AsyncStorageService).downloadFile(image.getName());
+    }
+
+    @Test
+    void getById_ShouldReturnResizedVariant_WhenImageSizeRequested() {
+        UUID id = UUID.randomUUID();
+        Image image = createTestImage(id);
+        byte[] thumbnail = "thumbnail".getBytes();
+        ImageResponse expectedResponse = new ImageResponse(
+                ImageType.AVATAR,
+                List.of(new FileTransferEntity(thumbnail, "test-image.png")),
+                id
+        );
+
+        when(imageValidationService.findByIdThrowsExceptionIfDoesntExist(eq(id), any(ImageNotFoundException.class)))
+                .thenReturn(image);
+        when(imageVariantService.downloadVariant(image.getName(), 64)).thenReturn(thumbnail);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(s3TaskExecutor).execute(any(Runnable.class));
+        when(imageMapper.toResponse(
+                eq(image.getImageType()),
+                eq(Collections.singletonList(thumbnail)),
+                eq(Collections.singletonList(image.getName())),
+                eq(image.getParentEntityId())
+        )).thenReturn(expectedResponse);
+
+        ImageResponse result = imageService.getById(id, 64).join();
+
+        assertEquals(expectedResponse, result);
+        verify(s3AsyncStorageService, never()).downloadFile(anyString());
     }
 
     @Test
@@ -114,9 +201,10 @@ class ImageServiceImplTest {
                 id
         );
 
-        when(imageValidationService.findByUrlThrowsExceptionIfDoesntExist(eq(url), any(ImageNotFoundException.class)))
+        when(s3StorageService.getObjectKey(url)).thenReturn(image.getObjectKey());
+        when(imageValidationService.findByObjectKeyThrowsExceptionIfDoesntExist(eq(image.getObjectKey()), any(ImageNotFoundException.class)))
                 .thenReturn(image);
-        when(s3StorageService.downloadFile(image.getName())).thenReturn(fileBytes);
+        when(s3AsyncStorageService.downloadFile(image.getName())).thenReturn(CompletableFuture.completedFuture(fileBytes));
         when(imageMapper.toResponse(
                 eq(image.getImageType()),
                 eq(Collections.singletonList(fileBytes)),
@@ -124,12 +212,83 @@ class ImageServiceImplTest {
                 eq(image.getParentEntityId())
         )).thenReturn(expectedResponse);
 
-        ImageResponse result = imageService.getByUrl(url);
+        ImageResponse result = imageService.getByUrl(url, null).join();
 
         assertNotNull(result);
         assertEquals(expectedResponse, result);
-        verify(imageValidationService).findByUrlThrowsExceptionIfDoesntExist(eq(url), any(ImageNotFoundException.class));
-        verify(s3StorageService).downloadFile(image.getName());
+        verify(imageValidationService).findByObjectKeyThrowsExceptionIfDoesntExist(eq(image.getObjectKey()), any(ImageNotFoundException.class));
+        verify(s3AsyncStorageService).downloadFile(image.getName());
+    }
+
+    @Test
+    void getMetadataById_ShouldUseHeadRequestOnly_WhenImageExists() {
+        UUID id = UUID.randomUUID();
+        Image image = createTestImage(id);
+        Instant objectModified = image.getUploadedAt().atZone(ZoneId.systemDefault()).toInstant().plusSeconds(60);
+
+        when(imageValidationService.findByIdThrowsExceptionIfDoesntExist(eq(id), any(ImageNotFoundException.class)))
+                .thenReturn(image);
+        when(s3StorageService.getFileInfo(image.getName())).thenReturn(HeadObjectResponse.builder()
+                .contentType("image/png")
+                .contentLength(17L)
+                .eTag("\"abc\"")
+                .lastModified(objectModified)
+                .build());
+
+        FileMetadata result = imageService.getMetadataById(id, null, false);
+
+        assertEquals(image.getName(), result.key());
+        assertEquals("image/png", result.contentType());
+        assertEquals(17L, result.contentLength());
+        assertEquals("\"abc\"", result.etag());
+        assertEquals(objectModified.truncatedTo(ChronoUnit.SECONDS), result.lastModified());
+        verify(s3StorageService, never()).downloadFileAsStream(anyString());
+        verify(s3StorageService, never()).downloadFile(anyString());
+    }
+
+    @Test
+    void getMetadataById_ShouldDescribeCompactCopy_WhenClientAcceptsIt() {
+        UUID id = UUID.randomUUID();
+        Image image = createTestImage(id);
+        image.setCompactContentType("image/jpeg");
+
+        when(imageValidationService.findByIdThrowsExceptionIfDoesntExist(eq(id), any(ImageNotFoundException.class)))
+                .thenReturn(image);
+        when(imageVariantService.compactKey(anyString())).thenAnswer(invocation -> invocation.getArgument(0) + ".jpg");
+        when(s3StorageService.getFileInfo("test-image.png.jpg")).thenReturn(HeadObjectResponse.builder()
+                .contentType("image/jpeg")
+                .contentLength(9L)
+                .eTag("\"jpg\"")
+                .build());
+
+        FileMetadata result = imageService.getMetadataById(id, null, true);
+
+        assertEquals("test-image.png.jpg", result.key());
+        assertEquals("test-image.png.jpg", result.name());
+        assertEquals("image/jpeg", result.contentType());
+    }
+
+    @Test
+    void streamRange_ShouldRequestOnlyRangeFromS3() throws IOException {
+        FileMetadata metadata = new FileMetadata("test-image.png", "test-image.png", "image/png", 17L, "\"abc\"", Instant.now());
+        byte[] rangeBytes = "file".getBytes();
+        ResponseInputStream<GetObjectResponse> s3Stream = new ResponseInputStream<>(
+                GetObjectResponse.builder()
+                        .contentType("image/png")
+                        .contentLength((long) rangeBytes.length)
+                        .build(),
+                AbortableInputStream.create(new ByteArrayInputStream(rangeBytes))
+        );
+
+        when(s3StorageService.downloadFileRangeAsStream("test-image.png", 5, 8)).thenReturn(s3Stream);
+
+        FileStreamEntity result = imageService.streamRange(metadata, 5, 8);
+
+        assertEquals("test-image.png", result.name());
+        assertEquals("image/png", result.contentType());
+        assertEquals(rangeBytes.length, result.contentLength());
+        assertEquals("file", new String(result.content().readAllBytes()));
+        verify(s3StorageService, never()).downloadFileAsStream(anyString());
     }
 
     @Test
@@ -140,13 +299,14 @@ class ImageServiceImplTest {
         when(imageValidationService.findByIdThrowsExceptionIfDoesntExist(eq(id), any(ImageNotFoundException.class)))
                 .thenReturn(image);
         doNothing().when(imageRepository).deleteById(id);
-        doNothing().when(s3StorageService).deleteFile(image.getName());
 
         imageService.deleteById(id);
 
         verify(imageValidationService).findByIdThrowsExceptionIfDoesntExist(eq(id), any(ImageNotFoundException.class));
         verify(imageRepository).deleteById(id);
-        verify(s3StorageService).deleteFile(image.getName());
+        verify(imageBlobService).release(List.of(image.getObjectKey()));
+        verify(imageMetadataCache).evict(List.of(id), List.of(image.getObjectKey()), List.of(image.getParentEntityId()));
+        verify(s3StorageService, never()).deleteFiles(anyList());
     }
 
 
@@ -171,8 +331,8 @@ class ImageServiceImplTest {
         );
 
         when(imageRepository.findByParentEntityId(parentId)).thenReturn(images);
-        when(s3StorageService.downloadFile("image1.png")).thenReturn(fileBytes1);
-        when(s3StorageService.downloadFile("image2.png")).thenReturn(fileBytes2);
+        when(s3AsyncStorageService.downloadFiles(List.of("image1.png", "image2.png")))
+                .thenReturn(CompletableFuture.completedFuture(List.of(fileBytes1, fileBytes2)));
         when(imageMapper.toResponse(
                 eq(images.get(0).getImageType()),
                 eq(List.of(fileBytes1, fileBytes2)),
@@ -180,12 +340,12 @@ class ImageServiceImplTest {
                 eq(parentId)
         )).thenReturn(expectedResponse);
 
-        ImageResponse result = imageService.getByParentId(parentId);
+        ImageResponse result = imageService.getByParentId(parentId, null).join();
 
         assertNotNull(result);
         assertEquals(expectedResponse, result);
         verify(imageRepository).findByParentEntityId(parentId);
-        verify(s3StorageService, times(2)).downloadFile(anyString());
+        verify(s3AsyncStorageService).downloadFiles(List.of("image1.png", "image2.png"));
     }
 
     @Test
@@ -193,48 +353,134 @@ class ImageServiceImplTest {
         UUID parentId = UUID.randomUUID();
         when(imageRepository.findByParentEntityId(parentId)).thenReturn(Collections.emptyList());
 
-        assertThrows(ImageNotFoundException.class, () -> imageService.getByParentId(parentId));
+        assertThrows(ImageNotFoundException.class, () -> imageService.getByParentId(parentId, null));
         verify(imageRepository).findByParentEntityId(parentId);
-        verify(s3StorageService, never()).downloadFile(anyString());
+        verify(s3AsyncStorageService, never()).downloadFiles(anyList());
     }
 
     @Test
-    void getManyByParentId_ShouldReturnPageableResponse() {
-        List<UUID> parentIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+    void getManyByParentId_ShouldDownloadAllFilesInOneBatchAndKeepParentOrder() {
+        UUID firstParent = UUID.randomUUID();
+        UUID secondParent = UUID.randomUUID();
+        List<UUID> parentIds = List.of(firstParent, secondParent);
         int pageNumber = 0;
         int size = 10;
 
-        ImageResponse response1 = new ImageResponse(ImageType.AVATAR, List.of(), parentIds.get(0));
-        ImageResponse response2 = new ImageResponse(ImageType.AVATAR, List.of(), parentIds.get(1));
+        List<Image> firstImages = List.of(
+                createTestImage(UUID.randomUUID(), firstParent, "image1.png"),
+                createTestImage(UUID.randomUUID(), firstParent, "image2.png")
+        );
+        List<Image> secondImages = List.of(createTestImage(UUID.randomUUID(), secondParent, "image3.png"));
+        byte[] fileBytes1 = "file1 content".getBytes();
+        byte[] fileBytes2 = "file2 content".getBytes();
+        byte[] fileBytes3 = "file3 content".getBytes();
 
+        ImageResponse response1 = new ImageResponse(ImageType.AVATAR, List.of(), firstParent);
+        ImageResponse response2 = new ImageResponse(ImageType.AVATAR, List.of(), secondParent);
         List<ImageResponse> responses = List.of(response1, response2);
-        Page<ImageResponse> page = new PageImpl<>(responses);
         PageableResponse<ImageResponse> expectedResponse = new PageableResponse<>(
                 2L, 1, 0, 10, responses
         );
 
-        ImageServiceImpl imageServiceSpy = spy(imageService);
+        when(imageRepository.findByParentEntityIdIn(parentIds)).thenReturn(List.of(
+                firstImages.get(0), secondImages.get(0), firstImages.get(1)
+        ));
+        when(s3AsyncStorageService.downloadFiles(List.of("image1.png", "image2.png", "image3.png")))
+                .thenReturn(CompletableFuture.completedFuture(List.of(fileBytes1, fileBytes2, fileBytes3)));
+        when(imageMapper.toResponse(
+                eq(ImageType.AVATAR),
+                eq(List.of(fileBytes1, fileBytes2)),
+                eq(List.of("image1.png", "image2.png")),
+                eq(firstParent)
+        )).thenReturn(response1);
+        when(imageMapper.toResponse(
+                eq(ImageType.AVATAR),
+                eq(List.of(fileBytes3)),
+                eq(List.of("image3.png")),
+                eq(secondParent)
+        )).thenReturn(response2);
+        when(pageMapper.<ImageResponse>toResponse(any())).thenReturn(expectedResponse);
+
+        PageableResponse<ImageResponse> result = imageService.getManyByParentId(parentIds, pageNumber, size, null).join();
 
-        doReturn(response1).when(imageServiceSpy).getByParentId(parentIds.get(0));
-        doReturn(response2).when(imageServiceSpy).getByParentId(parentIds.get(1));
+        assertNotNull(result);
+        assertEquals(expectedResponse, result);
+        verify(imageRepository).findByParentEntityIdIn(parentIds);
+        verify(imageRepository, never()).findByParentEntityId(any(UUID.class));
+        verify(s3AsyncStorageService).downloadFiles(anyList());
+        verify(pageMapper).toResponse(argThat((Page<ImageResponse> page) -> page.getContent().equals(responses)));
+    }
 
-        try (MockedStatic<PageUtils> pageUtilsMock = mockStatic(PageUtils.class)) {
-            pageUtilsMock.when(() -> PageUtils.convertListToPage(responses, pageNumber, size))
-                    .thenReturn(page);
+    @Test
+    void getManyByParentId_ShouldFetchOnlyRequestedPage() {
+        List<UUID> parentIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        UUID pageParent = parentIds.get(2);
+        List<Image> pageImages = List.of(createTestImage(UUID.randomUUID(), pageParent, "image3.png"));
+        byte[] fileBytes = "file3 content".getBytes();
+        ImageResponse response = new ImageResponse(ImageType.AVATAR, List.of(), pageParent);
+        PageableResponse<ImageResponse> expectedResponse = new PageableResponse<>(
+                3L, 2, 1, 2, List.of(response)
+        );
 
-            when(pageMapper.toResponse(page)).thenReturn(expectedResponse);
+        when(imageRepository.findByParentEntityIdIn(List.of(pageParent))).thenReturn(pageImages);
+        when(s3AsyncStorageService.downloadFiles(List.of("image3.png"))).thenReturn(CompletableFuture.completedFuture(List.of(fileBytes)));
+        when(imageMapper.toResponse(
+                eq(ImageType.AVATAR),
+                eq(List.of(fileBytes)),
+                eq(List.of("image3.png")),
+                eq(pageParent)
+        )).thenReturn(response);
+        when(pageMapper.<ImageResponse>toResponse(any())).thenReturn(expectedResponse);
 
-            PageableResponse<ImageResponse> result = imageServiceSpy.getManyByParentId(parentIds, pageNumber, size);
+        PageableResponse<ImageResponse> result = imageService.getManyByParentId(parentIds, 1, 2, null).join();
 
-            assertNotNull(result);
-            assertEquals(expectedResponse, result);
-            verify(imageServiceSpy, times(2)).getByParentId(any(UUID.class));
-            verify(pageMapper).toResponse(page);
-        }
+        assertEquals(expectedResponse, result);
+        verify(imageRepository).findByParentEntityIdIn(List.of(pageParent));
+        verify(pageMapper).toResponse(argThat((Page<ImageResponse> page) ->
+                page.getContent().equals(List.of(response))
+                        && page.getTotalElements() == 3
+                        && page.getNumber() == 1));
+    }
+
+    @Test
+    void getManyByParentId_ShouldThrowException_WhenParentHasNoImages() {
+        UUID parentWithImages = UUID.randomUUID();
+        UUID parentWithoutImages = UUID.randomUUID();
+        List<UUID> parentIds = List.of(parentWithImages, parentWithoutImages);
+
+        when(imageRepository.findByParentEntityIdIn(parentIds))
+                .thenReturn(List.of(createTestImage(UUID.randomUUID(), parentWithImages, "image1.png")));
+
+        assertThrows(ImageNotFoundException.class, () -> imageService.getManyByParentId(parentIds, 0, 10, null));
+        verify(s3AsyncStorageService, never()).downloadFiles(anyList());
     }
 
     @Test
-    void save_ShouldSaveImageAndReturnResponse_WhenValidRequest() throws IOException {
+    void getLinksByParentId_ShouldPresignEveryImageWithoutDownloading() {
+        UUID parentId = UUID.randomUUID();
+        List<Image> images = List.of(
+                createTestImage(UUID.randomUUID(), parentId, "image1.png"),
+                createTestImage(UUID.randomUUID(), parentId, "image2.png")
+        );
+        Instant expiresAt = Instant.now().plusSeconds(900);
+        FileLinkEntity link1 = new FileLinkEntity("http://s3/image1.png?X-Amz-Signature=1", "image1.png", expiresAt);
+        FileLinkEntity link2 = new FileLinkEntity("http://s3/image2.png?X-Amz-Signature=2", "image2.png", expiresAt);
+        ImageLinkResponse expectedResponse = new ImageLinkResponse(ImageType.AVATAR, List.of(link1, link2), parentId);
+
+        when(imageRepository.findByParentEntityId(parentId)).thenReturn(images);
+        when(s3StorageService.generatePresignedUrl("image1.png")).thenReturn(link1);
+        when(s3StorageService.generatePresignedUrl("image2.png")).thenReturn(link2);
+        when(imageMapper.toLinkResponse(ImageType.AVATAR, List.of(link1, link2), parentId)).thenReturn(expectedResponse);
+
+        ImageLinkResponse result = imageService.getLinksByParentId(parentId, null);
+
+        assertEquals(expectedResponse, result);
+        verify(s3AsyncStorageService, never()).downloadFiles(anyList());
+        verify(s3StorageService, never()).downloadFile(anyString());
+    }
+
+    @Test
+    void save_ShouldSaveImagesAndReturnMetadataOnly_WhenValidRequest() throws IOException {
         UUID parentId = UUID.randomUUID();
         MultipartFile file1 = mock(MultipartFile.class);
         MultipartFile file2 = mock(MultipartFile.class);
@@ -247,89 +493,115 @@ class ImageServiceImplTest {
 
         when(file1.getOriginalFilename()).thenReturn("image1.jpg");
         when(file2.getOriginalFilename()).thenReturn("image2.jpg");
-        when(file1.getBytes()).thenReturn("file1 content".getBytes());
-        when(file2.getBytes()).thenReturn("file2 content".getBytes());
-
-        String expectedName1 = "image1.jpg-" + parentId;
-        String expectedName2 = "image2.jpg-" + parentId;
-        String expectedUrl1 = "http://s3/bucket/image1.jpg-" + parentId;
-        String expectedUrl2 = "http://s3/bucket/image2.jpg-" + parentId;
-
-        when(s3StorageService.uploadFile(file1, expectedName1)).thenReturn(expectedUrl1);
-        when(s3StorageService.uploadFile(file2, expectedName2)).thenReturn(expectedUrl2);
+        when(file1.getSize()).thenReturn(13L);
+        when(file2.getSize()).thenReturn(14L);
+        when(file1.getContentType()).thenReturn("image/jpeg");
+        when(file2.getContentType()).thenReturn("image/png");
+
+        String expectedName1 = "image1.jpg";
+        String expectedName2 = "image2.jpg";
+        String key1 = "blobs/aaa-1";
+        String key2 = "blobs/bbb-2";
+        String expectedUrl1 = "http://s3/bucket/" + key1;
+        String expectedUrl2 = "http://s3/bucket/" + key2;
+
+        when(imageBlobService.storeAll(List.of(file1, file2))).thenReturn(List.of(blob(key1, null), blob(key2, "image/jpeg")));
+        when(s3StorageService.getFileUrl(key1)).thenReturn(expectedUrl1);
+        when(s3StorageService.getFileUrl(key2)).thenReturn(expectedUrl2);
 
         Image image1 = createTestImage(UUID.randomUUID());
         Image image2 = createTestImage(UUID.randomUUID());
 
-        when(imageMapper.toEntity(imageRequest, expectedUrl1, expectedName1)).thenReturn(image1);
-        when(imageMapper.toEntity(imageRequest, expectedUrl2, expectedName2)).thenReturn(image2);
-        when(imageRepository.saveAndFlush(any(Image.class))).thenReturn(image1).thenReturn(image2);
+        when(imageMapper.toEntity(imageRequest, expectedUrl1, expectedName1, key1, null)).thenReturn(image1);
+        when(imageMapper.toEntity(imageRequest, expectedUrl2, expectedName2, key2, "image/jpeg")).thenReturn(image2);
+        when(imageRepository.saveAll(List.of(image1, image2))).thenReturn(List.of(image1, image2));
 
-        List<byte[]> expectedBytes = List.of("file1 content".getBytes(), "file2 content".getBytes());
-        List<String> expectedNames = List.of(expectedName1, expectedName2);
-        ImageResponse expectedResponse = new ImageResponse(
+        FileResponse fileResponse1 = new FileResponse(image1.getId(), expectedName1, expectedUrl1, 13L, "image/jpeg");
+        FileResponse fileResponse2 = new FileResponse(image2.getId(), expectedName2, expectedUrl2, 14L, "image/png");
+        when(imageMapper.toFileResponse(image1, 13L, "image/jpeg")).thenReturn(fileResponse1);
+        when(imageMapper.toFileResponse(image2, 14L, "image/png")).thenReturn(fileResponse2);
+        ImageUploadResponse expectedResponse = new ImageUploadResponse(
                 ImageType.AVATAR,
-                List.of(
-                        new FileTransferEntity("file1 content".getBytes(), expectedName1),
-                        new FileTransferEntity("file2 content".getBytes(), expectedName2)
-                ),
+                List.of(fileResponse1, fileResponse2),
                 parentId
         );
+        when(imageMapper.toUploadResponse(ImageType.AVATAR, List.of(fileResponse1, fileResponse2), parentId))
+                .thenReturn(expectedResponse);
 
-        when(imageMapper.toResponse(
-                eq(ImageType.AVATAR),
-                any(List.class),
-                any(List.class),
-                eq(parentId)
-        )).thenReturn(expectedResponse);
-
-        ImageResponse result = imageService.save(imageRequest);
+        ImageUploadResponse result = imageService.save(imageRequest);
 
         assertNotNull(result);
         assertEquals(expectedResponse, result);
-        verify(s3StorageService, times(2)).uploadFile(any(MultipartFile.class), anyString());
-        verify(imageRepository, times(2)).saveAndFlush(any(Image.class));
-        verify(imageMapper).toResponse(
-                eq(ImageType.AVATAR),
-                any(List.class),
-                any(List.class),
-                eq(parentId)
-        );
+        verify(imageBlobService).storeAll(List.of(file1, file2));
+        verify(imageRepository).saveAll(List.of(image1, image2));
+        verify(imageRepository, never()).saveAndFlush(any(Image.class));
+        verify(file1, never()).getBytes();
+        verify(file2, never()).getBytes();
+    }
+
+    @Test
+    void save_ShouldReleaseStoredObjects_WhenDatabaseInsertFails() {
+        UUID parentId = UUID.randomUUID();
+        MultipartFile file = mock(MultipartFile.class);
+        ImageRequest imageRequest = new ImageRequest(ImageType.AVATAR, parentId, List.of(file));
+        String key = "blobs/aaa-1";
+        String expectedUrl = "http://s3/bucket/" + key;
+        Image image = createTestImage(UUID.randomUUID());
+
+        when(file.getOriginalFilename()).thenReturn("image1.jpg");
+        when(imageBlobService.storeAll(List.of(file))).thenReturn(List.of(blob(key, null)));
+        when(s3StorageService.getFileUrl(key)).thenReturn(expectedUrl);
+        when(imageMapper.toEntity(imageRequest, expectedUrl, "image1.jpg", key, null)).thenReturn(image);
+        when(imageRepository.saveAll(List.of(image))).thenThrow(new IllegalStateException("db is down"));
+
+        assertThrows(IllegalStateException.class, () -> imageService.save(imageRequest));
+        verify(imageBlobService).release(List.of(key));
+        verify(s3StorageService, never()).deleteFiles(anyList());
+        verify(imageMapper, never()).toUploadResponse(any(), anyList(), any());
     }
 
     @Test
-    void deleteByParentId_ShouldDeleteAllImagesForParent() {
+    void deleteByParentId_ShouldBulkDeleteRowsReleaseObjectsAndEvictMetadata() {
         UUID parentId = UUID.randomUUID();
         List<Image> images = List.of(
-                createTestImage(UUID.randomUUID(), parentId, "image1.png"),
-                createTestImage(UUID.randomUUID(), parentId, "image2.png")
+                createTestImage(UUID.randomUUID(), parentId, "blobs/aaa-1"),
+                createTestImage(UUID.randomUUID(), parentId, "blobs/aaa-1"),
+                createTestImage(UUID.randomUUID(), parentId, "blobs/bbb-2")
         );
+        List<String> keys = List.of("blobs/aaa-1", "blobs/aaa-1", "blobs/bbb-2");
 
-        when(imageRepository.findByParentEntityId(parentId)).thenReturn(images);
-        doNothing().when(imageRepository).deleteById(any(UUID.class));
-        doNothing().when(s3StorageService).deleteFile(anyString());
+        when(imageRepository.deleteByParentEntityIdReturningImages(parentId)).thenReturn(images);
 
         imageService.deleteByParentId(parentId);
 
-        verify(imageRepository).findByParentEntityId(parentId);
-        verify(imageRepository, times(2)).deleteById(any(UUID.class));
-        verify(s3StorageService, times(2)).deleteFile(anyString());
+        verify(imageRepository).deleteByParentEntityIdReturningImages(parentId);
+        verify(imageRepository, never()).deleteById(any(UUID.class));
+        verify(imageBlobService).release(keys);
+        verify(imageMetadataCache).evict(images.stream().map(Image::getId).toList(), keys, List.of(parentId));
+        verify(s3StorageService, never()).deleteFiles(anyList());
     }
 
     @Test
-    void getSvgIcons_ShouldReturnFileTransferEntities() {
-        List<FileTransferEntity> expectedIcons = List.of(
+    void getSvgIcons_ShouldReturnCachedIconsWithoutCallingS3() {
+        IconBundle expectedIcons = new IconBundle(List.of(
                 new FileTransferEntity("icon1".getBytes(), "icon1.svg"),
                 new FileTransferEntity("icon2".getBytes(), "icon2.svg")
-        );
+        ), "etag");
 
-        when(s3StorageService.downloadSvgIcons()).thenReturn(expectedIcons);
+        when(svgIconCache.get()).thenReturn(expectedIcons);
 
-        List<FileTransferEntity> result = imageService.getSvgIcons();
+        IconBundle result = imageService.getSvgIcons();
 
         assertNotNull(result);
         assertEquals(expectedIcons, result);
-        verify(s3StorageService).downloadSvgIcons();
+        verify(s3StorageService, never()).downloadSvgIcons();
+    }
+
+    private ImageBlob blob(String objectKey, String compactContentType) {
+        return ImageBlob.builder()
+                .objectKey(objectKey)
+                .compactContentType(compactContentType)
+                .build();
     }
 
     private Image createTestImage(UUID id) {
@@ -341,6 +613,7 @@ class ImageServiceImplTest {
                 .id(id)
                 .url("http://example.com/" + name)
                 .name(name)
+                .objectKey(name)
                 .parentEntityId(parentId)
                 .imageType(ImageType.AVATAR)
                 .uploadedAt(LocalDateTime.now())
@@ -0,0 +1,178 @@
+package ru.kharevich.imageservice.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.kharevich.imageservice.exception.FileNotFoundException;
+import ru.kharevich.imageservice.exception.ImageProcessingRejectedException;
+import ru.kharevich.imageservice.util.properties.ImageTranscodingProperties;
+import ru.kharevich.imageservice.util.properties.ImageVariantProperties;
+import ru.kharevich.imageservice.util.properties.S3Properties;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImageVariantServiceTest {
+
+    @Mock
+    private S3StorageService s3StorageService;
+
+    private final ExecutorService s3TaskExecutor = Executors.newCachedThreadPool();
+
+    private final ExecutorService imageProcessingExecutor = Executors.newFixedThreadPool(2);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ImageVariantService imageVariantService;
+
+    @BeforeEach
+    void setUp() {
+        imageVariantService = new ImageVariantService(s3StorageService, new ImageVariantProperties(),
+                new ImageTranscodingProperties(), new S3Properties(), s3TaskExecutor, imageProcessingExecutor, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3TaskExecutor.close();
+        imageProcessingExecutor.close();
+    }
+
+    @Test
+    void downloadVariant_ShouldCreateVariant_WhenVariantIsMissing() throws IOException {
+        when(s3StorageService.downloadFile("a.png_64px")).thenThrow(new FileNotFoundException("File not found: a.png_64px"));
+        when(s3StorageService.downloadFile("a.png")).thenReturn(png(512, 256));
+
+        imageVariantService.downloadVariant("a.png", 64);
+
+        verify(s3StorageService).uploadBytes(eq("a.png_64px"), any(), eq("image/png"));
+    }
+
+    @Test
+    void downloadVariant_ShouldNotRecreateVariant_WhenS3Fails() {
+        when(s3StorageService.downloadFile("a.png_64px"))
+                .thenThrow(S3Exception.builder().statusCode(503).message("Slow Down").build());
+
+        assertThrows(S3Exception.class, () -> imageVariantService.downloadVariant("a.png", 64));
+
+        verify(s3StorageService, never()).downloadFile("a.png");
+        verify(s3StorageService, never()).uploadBytes(anyString(), any(), anyString());
+    }
+
+    @Test
+    void resolveKey_ShouldNotRecreateVariant_WhenExistenceCheckFails() {
+        when(s3StorageService.fileExists("a.png_64px"))
+                .thenThrow(S3Exception.builder().statusCode(403).message("Access Denied").build());
+
+        assertThrows(S3Exception.class, () -> imageVariantService.resolveKey("a.png", 64));
+
+        verify(s3StorageService, never()).downloadFile("a.png");
+    }
+
+    @Test
+    void downloadVariant_ShouldRememberNotResizableImage_AndServeOriginalDirectly() {
+        byte[] svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes();
+        when(s3StorageService.downloadFile("a.svg_64px")).thenThrow(new FileNotFoundException("File not found: a.svg_64px"));
+        when(s3StorageService.downloadFile("a.svg")).thenReturn(svg);
+
+        assertArrayEquals(svg, imageVariantService.downloadVariant("a.svg", 64));
+        assertArrayEquals(svg, imageVariantService.downloadVariant("a.svg", 256));
+        assertEquals("a.svg", imageVariantService.resolveKey("a.svg", 1024));
+
+        verify(s3StorageService, times(1)).downloadFile("a.svg_64px");
+        verify(s3StorageService, never()).downloadFile("a.svg_256px");
+        verify(s3StorageService, never()).fileExists(anyString());
+        verify(s3StorageService, never()).uploadBytes(anyString(), any(), anyString());
+    }
+
+    @Test
+    void downloadVariant_ShouldRememberUndecodableImage_WhenHeaderIsReadableButBodyIsCorrupted() throws IOException {
+        byte[] truncated = Arrays.copyOf(png(512, 256), 45);
+        when(s3StorageService.downloadFile("a.png_64px")).thenThrow(new FileNotFoundException("File not found: a.png_64px"));
+        when(s3StorageService.downloadFile("a.png")).thenReturn(truncated);
+
+        assertArrayEquals(truncated, imageVariantService.downloadVariant("a.png", 64));
+        assertArrayEquals(truncated, imageVariantService.downloadVariant("a.png", 256));
+
+        verify(s3StorageService, never()).downloadFile("a.png_256px");
+        verify(s3StorageService, never()).uploadBytes(anyString(), any(), anyString());
+    }
+
+    @Test
+    void downloadVariant_ShouldResizeOnce_WhenManyCallersMissSameVariant() throws Exception {
+        byte[] original = png(512, 256);
+        CountDownLatch downloading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(s3StorageService.downloadFile("a.png_64px")).thenThrow(new FileNotFoundException("File not found: a.png_64px"));
+        when(s3StorageService.downloadFile("a.png")).thenAnswer(invocation -> {
+            downloading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return original;
+        });
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<byte[]>> results = new ArrayList<>();
+            results.add(executor.submit(() -> imageVariantService.downloadVariant("a.png", 64)));
+            downloading.await(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> imageVariantService.downloadVariant("a.png", 64)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            byte[] first = results.getFirst().get(5, TimeUnit.SECONDS);
+            for (Future<byte[]> result : results) {
+                assertArrayEquals(first, result.get(5, TimeUnit.SECONDS));
+            }
+        }
+        verify(s3StorageService, times(1)).downloadFile("a.png");
+        verify(s3StorageService, times(1)).uploadBytes(eq("a.png_64px"), any(), eq("image/png"));
+    }
+
+    @Test
+    void downloadVariant_ShouldRejectWithRetryAfter_WhenProcessingQueueIsFull() throws IOException {
+        imageProcessingExecutor.shutdown();
+        when(s3StorageService.downloadFile("a.png_64px")).thenThrow(new FileNotFoundException("File not found: a.png_64px"));
+        when(s3StorageService.downloadFile("a.png")).thenReturn(png(512, 256));
+
+        ImageProcessingRejectedException exception = assertThrows(ImageProcessingRejectedException.class,
+                () -> imageVariantService.downloadVariant("a.png", 64));
+
+        assertEquals(Duration.ofSeconds(1), exception.getRetryAfter());
+        assertEquals(1, meterRegistry.get("image.processing.rejected").tag("task", "variant").counter().count());
+        verify(s3StorageService, never()).uploadBytes(anyString(), any(), anyString());
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", output);
+        return output.toByteArray();
+    }
+
+}
@@ -0,0 +1,85 @@
+package ru.kharevich.imageservice.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.kharevich.imageservice.model.ObjectDeletionTask;
+import ru.kharevich.imageservice.repository.ObjectDeletionTaskRepository;
+import ru.kharevich.imageservice.util.properties.S3Properties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ObjectDeletionPollerTest {
+
+    @Mock
+    private ObjectDeletionTaskRepository objectDeletionTaskRepository;
+
+    @Mock
+    private S3StorageService s3StorageService;
+
+    private ObjectDeletionPoller poller;
+
+    @BeforeEach
+    void setUp() {
+        S3Properties s3Properties = new S3Properties();
+        s3Properties.setDeletionBatchSize(2);
+        s3Properties.setDeletionLease(Duration.ofSeconds(60));
+        s3Properties.setDeletionRetryBackoff(Duration.ofSeconds(2));
+        s3Properties.setDeletionMaxBackoff(Duration.ofSeconds(30));
+        poller = new ObjectDeletionPoller(objectDeletionTaskRepository, s3StorageService, s3Properties);
+    }
+
+    @Test
+    void poll_ShouldDeleteObjectsAndOutboxRows_UntilOutboxIsDrained() {
+        ObjectDeletionTask first = task("a.png", 1);
+        ObjectDeletionTask second = task("b.png", 1);
+        ObjectDeletionTask third = task("c.png", 1);
+        when(objectDeletionTaskRepository.claimBatch(2, 60))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(third));
+
+        poller.poll();
+
+        verify(s3StorageService).deleteFiles(List.of("a.png", "b.png"));
+        verify(s3StorageService).deleteFiles(List.of("c.png"));
+        verify(objectDeletionTaskRepository).deleteAllByIdInBatch(List.of(first.getId(), second.getId()));
+        verify(objectDeletionTaskRepository).deleteAllByIdInBatch(List.of(third.getId()));
+        verify(objectDeletionTaskRepository, times(2)).claimBatch(2, 60);
+        verify(objectDeletionTaskRepository, never()).reschedule(anyCollection(), anyLong());
+    }
+
+    @Test
+    void poll_ShouldRescheduleBatchWithCappedBackoff_WhenS3Fails() {
+        ObjectDeletionTask task = task("a.png", 6);
+        when(objectDeletionTaskRepository.claimBatch(2, 60)).thenReturn(List.of(task));
+        doThrow(new RuntimeException("S3 unavailable")).when(s3StorageService).deleteFiles(anyList());
+
+        poller.poll();
+
+        verify(objectDeletionTaskRepository).reschedule(List.of(task.getId()), 30);
+        verify(objectDeletionTaskRepository, never()).deleteAllByIdInBatch(anyList());
+    }
+
+    private ObjectDeletionTask task(String key, int attempts) {
+        return ObjectDeletionTask.builder()
+                .id(UUID.randomUUID())
+                .objectKey(key)
+                .attempts(attempts)
+                .build();
+    }
+
+}
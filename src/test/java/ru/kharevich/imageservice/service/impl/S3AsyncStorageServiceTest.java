@@ -0,0 +1,73 @@
+package ru.kharevich.imageservice.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.kharevich.imageservice.cache.S3ObjectCache;
+import ru.kharevich.imageservice.exception.FileNotFoundException;
+import ru.kharevich.imageservice.util.properties.ObjectCacheProperties;
+import ru.kharevich.imageservice.util.properties.S3Properties;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class S3AsyncStorageServiceTest {
+
+    @Mock
+    private S3AsyncClient s3AsyncClient;
+
+    private S3AsyncStorageService s3AsyncStorageService;
+
+    @BeforeEach
+    void setUp() {
+        S3Properties s3Properties = new S3Properties();
+        s3Properties.setBucketName("test");
+        ObjectCacheProperties cacheProperties = new ObjectCacheProperties();
+        cacheProperties.setEnabled(false);
+        s3AsyncStorageService = new S3AsyncStorageService(s3AsyncClient, s3Properties,
+                new S3ObjectCache(cacheProperties, new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void downloadFile_ShouldFailWithFileNotFound_WhenKeyIsMissing() {
+        failGetObject(NoSuchKeyException.builder().statusCode(404).message("The specified key does not exist").build());
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> s3AsyncStorageService.downloadFile("missing.png").join());
+
+        assertInstanceOf(FileNotFoundException.class, exception.getCause());
+    }
+
+    @Test
+    void downloadFile_ShouldPassS3ErrorThrough_WhenS3IsUnavailable() {
+        failGetObject((S3Exception) S3Exception.builder().statusCode(503).message("Slow Down").build());
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> s3AsyncStorageService.downloadFile("a.png").join());
+
+        S3Exception cause = assertInstanceOf(S3Exception.class, exception.getCause());
+        assertEquals(503, cause.statusCode());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void failGetObject(S3Exception error) {
+        when(s3AsyncClient.getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class)))
+                .thenReturn(CompletableFuture.failedFuture(error));
+    }
+
+}
@@ -0,0 +1,209 @@
+package ru.kharevich.imageservice.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+import ru.kharevich.imageservice.cache.S3ObjectCache;
+import ru.kharevich.imageservice.exception.FileNotFoundException;
+import ru.kharevich.imageservice.exception.FileUploadException;
+import ru.kharevich.imageservice.support.InMemoryS3Client;
+import ru.kharevich.imageservice.util.properties.ObjectCacheProperties;
+import ru.kharevich.imageservice.util.properties.S3Properties;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class S3StorageServiceTest {
+
+    private static final int PART_SIZE = 1024;
+
+    private static final int CONCURRENCY = 2;
+
+    private static final int PARTS = 10;
+
+    private final InMemoryS3Client s3Client = new InMemoryS3Client(Duration.ofMillis(20));
+
+    private final ExecutorService s3TaskExecutor = Executors.newCachedThreadPool();
+
+    private S3StorageService s3StorageService;
+
+    private final S3Properties s3Properties = new S3Properties();
+
+    private final S3ObjectCache s3ObjectCache = disabledCache();
+
+    @BeforeEach
+    void setUp() {
+        s3Properties.setBucketName("test");
+        s3Properties.setMultipartThreshold(DataSize.ofBytes(PART_SIZE));
+        s3Properties.setMultipartPartSize(DataSize.ofBytes(PART_SIZE));
+        s3Properties.setMultipartConcurrency(CONCURRENCY);
+
+        s3StorageService = new S3StorageService(s3Client, null, s3Properties, s3TaskExecutor, s3ObjectCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3TaskExecutor.close();
+    }
+
+    @Test
+    void uploadFile_ShouldSplitIntoPartsAndKeepAtMostConcurrencyPartsInMemory() {
+        byte[] content = randomBytes(PARTS * PART_SIZE + PART_SIZE / 2);
+        TrackingMultipartFile file = new TrackingMultipartFile(content);
+
+        s3StorageService.uploadFile(file, "large.png");
+
+        assertArrayEquals(content, s3Client.content("large.png"));
+        assertEquals(PARTS + 1, s3Client.uploadedParts());
+        assertTrue(s3Client.maxPartsInFlight() <= CONCURRENCY);
+        assertTrue(file.maxPartsAhead.get() <= CONCURRENCY);
+        assertEquals(0, s3Client.abortedUploads());
+        assertEquals(0, s3Client.pendingUploads());
+    }
+
+    @Test
+    void uploadFile_ShouldStopSubmittingPartsAndAbort_WhenPartFails() {
+        s3Client.failPart(1);
+        TrackingMultipartFile file = new TrackingMultipartFile(randomBytes(PARTS * PART_SIZE));
+
+        assertThrows(FileUploadException.class, () -> s3StorageService.uploadFile(file, "large.png"));
+
+        assertTrue(s3Client.uploadedParts() <= CONCURRENCY);
+        assertEquals(1, s3Client.abortedUploads());
+        assertEquals(0, s3Client.pendingUploads());
+        assertFalse(s3Client.contains("large.png"));
+    }
+
+    @Test
+    void uploadFile_ShouldUseSinglePut_WhenBelowThreshold() {
+        byte[] content = randomBytes(PART_SIZE - 1);
+
+        s3StorageService.uploadFile(new MockMultipartFile("files", "small.png", "image/png", content), "small.png");
+
+        assertArrayEquals(content, s3Client.content("small.png"));
+        assertEquals(0, s3Client.uploadedParts());
+    }
+
+    @Test
+    void downloadFile_ShouldThrowFileNotFound_WhenKeyIsMissing() {
+        assertThrows(FileNotFoundException.class, () -> s3StorageService.downloadFile("missing.png"));
+    }
+
+    @Test
+    void getFileInfo_ShouldThrowFileNotFound_WhenKeyIsMissing() {
+        assertThrows(FileNotFoundException.class, () -> s3StorageService.getFileInfo("missing.png"));
+    }
+
+    @Test
+    void getFileInfo_ShouldPassS3ErrorThrough_WhenS3IsUnavailable() {
+        S3Client failingClient = mock(S3Client.class);
+        when(failingClient.headObject(any(HeadObjectRequest.class))).thenThrow(s3Error(503));
+
+        S3Exception exception = assertThrows(S3Exception.class,
+                () -> storageService(failingClient).getFileInfo("a.png"));
+
+        assertEquals(503, exception.statusCode());
+    }
+
+    @Test
+    void downloadFileAsStream_ShouldPassS3ErrorThrough_WhenAccessIsDenied() {
+        S3Client failingClient = mock(S3Client.class);
+        when(failingClient.getObject(any(GetObjectRequest.class))).thenThrow(s3Error(403));
+
+        S3Exception exception = assertThrows(S3Exception.class,
+                () -> storageService(failingClient).downloadFileAsStream("a.png"));
+
+        assertEquals(403, exception.statusCode());
+    }
+
+    @Test
+    void downloadFileRangeAsStream_ShouldPassS3ErrorThrough_WhenS3IsUnavailable() {
+        S3Client failingClient = mock(S3Client.class);
+        when(failingClient.getObject(any(GetObjectRequest.class))).thenThrow(s3Error(500));
+
+        S3Exception exception = assertThrows(S3Exception.class,
+                () -> storageService(failingClient).downloadFileRangeAsStream("a.png", 0, 9));
+
+        assertEquals(500, exception.statusCode());
+    }
+
+    @Test
+    void downloadFileRangeAsStream_ShouldThrowFileNotFound_WhenKeyIsMissing() {
+        assertThrows(FileNotFoundException.class, () -> s3StorageService.downloadFileRangeAsStream("missing.png", 0, 9));
+    }
+
+    private S3StorageService storageService(S3Client client) {
+        return new S3StorageService(client, null, s3Properties, s3TaskExecutor, s3ObjectCache);
+    }
+
+    private static S3Exception s3Error(int statusCode) {
+        return (S3Exception) S3Exception.builder().statusCode(statusCode).message("S3 error " + statusCode).build();
+    }
+
+    private static S3ObjectCache disabledCache() {
+        ObjectCacheProperties cacheProperties = new ObjectCacheProperties();
+        cacheProperties.setEnabled(false);
+        return new S3ObjectCache(cacheProperties, new SimpleMeterRegistry());
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Запоминает, на сколько частей чтение потока опережало завершённые загрузки частей
+     */
+    private class TrackingMultipartFile extends MockMultipartFile {
+
+        private final AtomicInteger maxPartsAhead = new AtomicInteger();
+
+        TrackingMultipartFile(byte[] content) {
+            super("files", "large.png", "image/png", content);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+
+                private long position;
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (len == 0) {
+                        return 0;
+                    }
+                    int partsAhead = (int) (position / PART_SIZE) + 1 - s3Client.uploadedParts();
+                    maxPartsAhead.accumulateAndGet(partsAhead, Math::max);
+                    int read = super.read(b, off, len);
+                    position += Math.max(read, 0);
+                    return read;
+                }
+            };
+        }
+    }
+
+}
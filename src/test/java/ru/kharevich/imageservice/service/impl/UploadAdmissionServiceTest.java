@@ -0,0 +1,70 @@
+package ru.kharevich.imageservice.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import ru.kharevich.imageservice.exception.UploadRejectedException;
+import ru.kharevich.imageservice.util.properties.UploadAdmissionProperties;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UploadAdmissionServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private UploadAdmissionService uploadAdmissionService;
+
+    @BeforeEach
+    void setUp() {
+        UploadAdmissionProperties properties = new UploadAdmissionProperties();
+        properties.setMaxBytesInFlight(DataSize.ofMegabytes(10));
+        properties.setMaxConcurrentPerClient(2);
+        properties.setQueueTimeout(Duration.ZERO);
+        properties.setRetryAfter(Duration.ofSeconds(3));
+        uploadAdmissionService = new UploadAdmissionService(properties, meterRegistry);
+    }
+
+    @Test
+    void admit_ShouldRejectWith429_WhenClientExceedsConcurrencyLimit() {
+        uploadAdmissionService.admit("client-a", 1024);
+        uploadAdmissionService.admit("client-a", 1024);
+
+        UploadRejectedException exception = assertThrows(UploadRejectedException.class,
+                () -> uploadAdmissionService.admit("client-a", 1024));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatus());
+        assertEquals(Duration.ofSeconds(3), exception.getRetryAfter());
+        assertDoesNotThrow(() -> uploadAdmissionService.admit("client-b", 1024));
+    }
+
+    @Test
+    void admit_ShouldRejectWith503_WhenBytesInFlightExhausted() {
+        uploadAdmissionService.admit("client-a", DataSize.ofMegabytes(8).toBytes());
+
+        UploadRejectedException exception = assertThrows(UploadRejectedException.class,
+                () -> uploadAdmissionService.admit("client-b", DataSize.ofMegabytes(4).toBytes()));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+        assertEquals(DataSize.ofMegabytes(8).toBytes(), meterRegistry.get("image.upload.bytes.in.flight").gauge().value());
+        assertEquals(1, meterRegistry.get("image.upload.rejected").tag("reason", "capacity").counter().count());
+    }
+
+    @Test
+    void close_ShouldReturnCapacityOnlyOnce() {
+        UploadAdmissionService.Permit permit = uploadAdmissionService.admit("client-a", DataSize.ofMegabytes(10).toBytes());
+
+        permit.close();
+        permit.close();
+
+        assertEquals(0, meterRegistry.get("image.upload.bytes.in.flight").gauge().value());
+        uploadAdmissionService.admit("client-a", DataSize.ofMegabytes(10).toBytes());
+        assertThrows(UploadRejectedException.class, () -> uploadAdmissionService.admit("client-b", 1024));
+    }
+
+}
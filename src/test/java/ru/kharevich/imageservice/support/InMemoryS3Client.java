@@ -0,0 +1,299 @@
+package ru.kharevich.imageservice.support;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.DeletedObject;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * S3Client, хранящий объекты в памяти. Поддерживает put/get/head/delete, в том числе чтение диапазона,
+ * и multipart upload с подсчётом одновременно загружаемых частей и отказом выбранной части.
+ * Задержка latency имитирует сетевой round-trip и добавляется к каждому вызову
+ */
+public class InMemoryS3Client implements S3Client {
+
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+
+    private final Map<String, MultipartUpload> uploads = new ConcurrentHashMap<>();
+
+    private final Set<Integer> failingParts = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger uploadedParts = new AtomicInteger();
+
+    private final AtomicInteger partsInFlight = new AtomicInteger();
+
+    private final AtomicInteger maxPartsInFlight = new AtomicInteger();
+
+    private final AtomicInteger abortedUploads = new AtomicInteger();
+
+    private final long latencyNanos;
+
+    public InMemoryS3Client() {
+        this(Duration.ZERO);
+    }
+
+    public InMemoryS3Client(Duration latency) {
+        this.latencyNanos = latency.toNanos();
+    }
+
+    public void put(String key, byte[] content, String contentType) {
+        objects.put(key, new StoredObject(content, contentType, Instant.now()));
+    }
+
+    public int size() {
+        return objects.size();
+    }
+
+    public boolean contains(String key) {
+        return objects.containsKey(key);
+    }
+
+    public byte[] content(String key) {
+        return find(key).content();
+    }
+
+    /**
+     * Все следующие загрузки части с этим номером сразу, без задержки, завершатся ошибкой S3
+     */
+    public void failPart(int partNumber) {
+        failingParts.add(partNumber);
+    }
+
+    public int uploadedParts() {
+        return uploadedParts.get();
+    }
+
+    public int maxPartsInFlight() {
+        return maxPartsInFlight.get();
+    }
+
+    public int abortedUploads() {
+        return abortedUploads.get();
+    }
+
+    public int pendingUploads() {
+        return uploads.size();
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest putObjectRequest, RequestBody requestBody) {
+        simulateLatency();
+        try (InputStream content = requestBody.contentStreamProvider().newStream()) {
+            put(putObjectRequest.key(), content.readAllBytes(), putObjectRequest.contentType());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return PutObjectResponse.builder().eTag(etag(putObjectRequest.key())).build();
+    }
+
+    @Override
+    public <ReturnT> ReturnT getObject(GetObjectRequest getObjectRequest,
+                                       ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer) {
+        simulateLatency();
+        StoredObject object = find(getObjectRequest.key());
+
+        int start = 0;
+        int end = object.content().length - 1;
+        if (getObjectRequest.range() != null) {
+            String[] bounds = getObjectRequest.range().substring("bytes=".length()).split("-");
+            start = Integer.parseInt(bounds[0]);
+            end = Math.min(end, Integer.parseInt(bounds[1]));
+        }
+        int length = Math.max(0, end - start + 1);
+
+        GetObjectResponse response = GetObjectResponse.builder()
+                .contentLength((long) length)
+                .contentType(object.contentType())
+                .eTag(etag(getObjectRequest.key()))
+                .lastModified(object.lastModified())
+                .build();
+        InputStream content = new ByteArrayInputStream(object.content(), start, length);
+        try {
+            return responseTransformer.transform(response, AbortableInputStream.create(content));
+        } catch (Exception e) {
+            throw SdkClientException.create("Failed to transform response", e);
+        }
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest headObjectRequest) {
+        simulateLatency();
+        StoredObject object = find(headObjectRequest.key());
+        return HeadObjectResponse.builder()
+                .contentLength((long) object.content().length)
+                .contentType(object.contentType())
+                .eTag(etag(headObjectRequest.key()))
+                .lastModified(object.lastModified())
+                .build();
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest deleteObjectRequest) {
+        simulateLatency();
+        objects.remove(deleteObjectRequest.key());
+        return DeleteObjectResponse.builder().build();
+    }
+
+    @Override
+    public DeleteObjectsResponse deleteObjects(DeleteObjectsRequest deleteObjectsRequest) {
+        simulateLatency();
+        List<DeletedObject> deleted = new ArrayList<>();
+        for (ObjectIdentifier identifier : deleteObjectsRequest.delete().objects()) {
+            objects.remove(identifier.key());
+            deleted.add(DeletedObject.builder().key(identifier.key()).build());
+        }
+        return DeleteObjectsResponse.builder().deleted(deleted).build();
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest createMultipartUploadRequest) {
+        simulateLatency();
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new MultipartUpload(createMultipartUploadRequest.contentType(), new ConcurrentHashMap<>()));
+        return CreateMultipartUploadResponse.builder()
+                .bucket(createMultipartUploadRequest.bucket())
+                .key(createMultipartUploadRequest.key())
+                .uploadId(uploadId)
+                .build();
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest uploadPartRequest, RequestBody requestBody) {
+        int inFlight = partsInFlight.incrementAndGet();
+        maxPartsInFlight.accumulateAndGet(inFlight, Math::max);
+        try {
+            uploadedParts.incrementAndGet();
+            if (failingParts.contains(uploadPartRequest.partNumber())) {
+                throw S3Exception.builder()
+                        .statusCode(500)
+                        .message("Part upload failed: " + uploadPartRequest.partNumber())
+                        .build();
+            }
+            simulateLatency();
+            try (InputStream content = requestBody.contentStreamProvider().newStream()) {
+                findUpload(uploadPartRequest.uploadId()).parts().put(uploadPartRequest.partNumber(), content.readAllBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return UploadPartResponse.builder()
+                    .eTag("\"" + uploadPartRequest.partNumber() + "\"")
+                    .build();
+        } finally {
+            partsInFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(
+            CompleteMultipartUploadRequest completeMultipartUploadRequest) {
+        simulateLatency();
+        MultipartUpload upload = findUpload(completeMultipartUploadRequest.uploadId());
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (CompletedPart part : completeMultipartUploadRequest.multipartUpload().parts()) {
+            content.writeBytes(upload.parts().get(part.partNumber()));
+        }
+        uploads.remove(completeMultipartUploadRequest.uploadId());
+        put(completeMultipartUploadRequest.key(), content.toByteArray(), upload.contentType());
+        return CompleteMultipartUploadResponse.builder()
+                .key(completeMultipartUploadRequest.key())
+                .eTag(etag(completeMultipartUploadRequest.key()))
+                .build();
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest abortMultipartUploadRequest) {
+        simulateLatency();
+        uploads.remove(abortMultipartUploadRequest.uploadId());
+        abortedUploads.incrementAndGet();
+        return AbortMultipartUploadResponse.builder().build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+        objects.clear();
+    }
+
+    private StoredObject find(String key) {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            throw NoSuchKeyException.builder()
+                    .statusCode(404)
+                    .message("The specified key does not exist: " + key)
+                    .build();
+        }
+        return object;
+    }
+
+    private MultipartUpload findUpload(String uploadId) {
+        MultipartUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            throw S3Exception.builder()
+                    .statusCode(404)
+                    .message("The specified upload does not exist: " + uploadId)
+                    .build();
+        }
+        return upload;
+    }
+
+    private String etag(String key) {
+        return "\"" + Integer.toHexString(System.identityHashCode(objects.get(key))) + "\"";
+    }
+
+    private void simulateLatency() {
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+    }
+
+    private record StoredObject(byte[] content, String contentType, Instant lastModified) {
+    }
+
+    private record MultipartUpload(String contentType, Map<Integer, byte[]> parts) {
+    }
+
+}
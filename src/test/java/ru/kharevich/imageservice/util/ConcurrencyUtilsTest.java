@@ -0,0 +1,175 @@
+package ru.kharevich.imageservice.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyUtilsTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void mapConcurrently_ShouldKeepOriginalOrder() {
+        List<Integer> items = IntStream.range(0, 50).boxed().toList();
+
+        List<Integer> result = ConcurrencyUtils.mapConcurrently(items, item -> {
+            sleep((50 - item) % 7);
+            return item * 2;
+        }, 8, executor);
+
+        assertEquals(items.stream().map(item -> item * 2).toList(), result);
+    }
+
+    @Test
+    void mapConcurrently_ShouldNotExceedConcurrencyLimit() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> items = IntStream.range(0, 40).boxed().toList();
+
+        ConcurrencyUtils.mapConcurrently(items, item -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(5);
+            running.decrementAndGet();
+            return item;
+        }, 4, executor);
+
+        assertTrue(maxRunning.get() <= 4);
+    }
+
+    @Test
+    void mapConcurrently_ShouldNotSubmitMoreTasksThanConcurrencyLimit() {
+        AtomicInteger submitted = new AtomicInteger();
+        AtomicInteger maxSubmitted = new AtomicInteger();
+        Executor countingExecutor = runnable -> {
+            maxSubmitted.accumulateAndGet(submitted.incrementAndGet(), Math::max);
+            executor.execute(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    submitted.decrementAndGet();
+                }
+            });
+        };
+        List<Integer> items = IntStream.range(0, 40).boxed().toList();
+
+        ConcurrencyUtils.mapConcurrently(items, item -> {
+            sleep(2);
+            return item;
+        }, 4, countingExecutor);
+
+        // задача возвращает разрешение чуть раньше, чем обёртка executor видит её завершение,
+        // поэтому на стыке могут пересечься старая и новая задача; без лимита было бы все 40
+        assertTrue(maxSubmitted.get() <= 2 * 4, "submitted " + maxSubmitted.get());
+    }
+
+    @Test
+    void mapConcurrently_ShouldStopSubmitting_WhenTaskFails() {
+        AtomicInteger started = new AtomicInteger();
+        List<Integer> items = IntStream.range(0, 100).boxed().toList();
+
+        assertThrows(IllegalStateException.class, () -> ConcurrencyUtils.mapConcurrently(items, item -> {
+            started.incrementAndGet();
+            if (item == 0) {
+                throw new IllegalStateException("failed " + item);
+            }
+            sleep(5);
+            return item;
+        }, 2, executor));
+
+        assertTrue(started.get() < items.size(), "started " + started.get());
+    }
+
+    @Test
+    void mapConcurrently_ShouldRethrowTaskException() {
+        List<Integer> items = List.of(1, 2, 3);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+                ConcurrencyUtils.mapConcurrently(items, item -> {
+                    if (item == 2) {
+                        throw new IllegalStateException("failed " + item);
+                    }
+                    return item;
+                }, 3, executor));
+
+        assertEquals("failed 2", exception.getMessage());
+    }
+
+    @Test
+    void mapConcurrentlyAsync_ShouldKeepOrderAndLimitInFlightFutures() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<Integer> items = IntStream.range(0, 40).boxed().toList();
+
+        List<Integer> result = ConcurrencyUtils.mapConcurrentlyAsync(items, item -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                sleep((40 - item) % 5);
+                inFlight.decrementAndGet();
+                return item * 2;
+            }, executor);
+        }, 4).join();
+
+        assertEquals(items.stream().map(item -> item * 2).toList(), result);
+        assertTrue(maxInFlight.get() <= 4);
+    }
+
+    @Test
+    void mapConcurrentlyAsync_ShouldFail_WhenAnyFutureFails() {
+        CompletableFuture<List<Integer>> result = ConcurrencyUtils.mapConcurrentlyAsync(List.of(1, 2, 3), item -> item == 2
+                ? CompletableFuture.failedFuture(new IllegalStateException("failed " + item))
+                : CompletableFuture.completedFuture(item), 2);
+
+        CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertEquals("failed 2", exception.getCause().getMessage());
+    }
+
+    @Test
+    void mapConcurrentlyAsync_ShouldNotGrowStack_WhenFuturesAreAlreadyCompleted() {
+        List<Integer> items = IntStream.range(0, 5_000).boxed().toList();
+
+        List<Integer> result = ConcurrencyUtils.mapConcurrentlyAsync(items, CompletableFuture::completedFuture, 4).join();
+
+        assertEquals(items, result);
+    }
+
+    @Test
+    void mapConcurrentlyAsync_ShouldFail_WhenTaskThrowsAfterCompletedFutures() {
+        List<Integer> items = IntStream.range(0, 5_000).boxed().toList();
+
+        CompletableFuture<List<Integer>> result = ConcurrencyUtils.mapConcurrentlyAsync(items, item -> {
+            if (item == 4_000) {
+                throw new IllegalStateException("failed " + item);
+            }
+            return CompletableFuture.completedFuture(item);
+        }, 2);
+
+        CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertEquals("failed 4000", exception.getCause().getMessage());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package ru.kharevich.imageservice.util;
+
+import org.junit.jupiter.api.Test;
+import ru.kharevich.imageservice.dto.transferObjects.DecodedImage;
+import ru.kharevich.imageservice.dto.transferObjects.ResizedImage;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ImageResizerTest {
+
+    private static final long MAX_PIXELS = 50_000_000;
+
+    @Test
+    void resize_ShouldKeepAspectRatio_WhenSourceIsSubsampled() throws IOException {
+        byte[] png = png(2048, 1024);
+
+        ResizedImage resized = ImageResizer.resize(png, 64, MAX_PIXELS);
+
+        assertNotNull(resized);
+        assertEquals("image/png", resized.contentType());
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(resized.content()));
+        assertEquals(64, decoded.getWidth());
+        assertEquals(32, decoded.getHeight());
+    }
+
+    @Test
+    void decode_ShouldSubsampleToTwiceTargetSide() throws IOException {
+        DecodedImage decoded = ImageResizer.decode(png(2048, 1024), MAX_PIXELS, 64);
+
+        assertNotNull(decoded);
+        assertEquals(128, decoded.image().getWidth());
+        assertEquals(64, decoded.image().getHeight());
+    }
+
+    @Test
+    void resize_ShouldSkipImage_WhenPixelCountExceedsLimit() throws IOException {
+        assertNull(ImageResizer.resize(png(200, 100), 64, 200 * 100 - 1));
+    }
+
+    @Test
+    void resize_ShouldRejectByHeaderWithoutDecoding_WhenImageDeclaresHugeDimensions() throws IOException {
+        byte[] bomb = withDimensions(png(16, 16), 100_000, 100_000);
+
+        assertNull(ImageResizer.resize(bomb, 64, MAX_PIXELS));
+    }
+
+    @Test
+    void resize_ShouldSkipImage_WhenBodyCanNotBeDecoded() throws IOException {
+        byte[] truncated = Arrays.copyOf(png(200, 100), 45);
+
+        assertNull(ImageResizer.resize(truncated, 64, MAX_PIXELS));
+    }
+
+    @Test
+    void resize_ShouldSkipUnreadableContent() {
+        assertNull(ImageResizer.resize("<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes(), 64, MAX_PIXELS));
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(40, 120, 200));
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Подменяет размеры в заголовке IHDR и пересчитывает его CRC: данные остаются прежними,
+     * но декодер выделил бы память под объявленные размеры
+     */
+    private static byte[] withDimensions(byte[] png, int width, int height) {
+        byte[] patched = png.clone();
+        ByteBuffer buffer = ByteBuffer.wrap(patched);
+        // сигнатура (8) + длина чанка (4) + тип "IHDR" (4)
+        buffer.putInt(16, width);
+        buffer.putInt(20, height);
+        CRC32 crc = new CRC32();
+        crc.update(patched, 12, 4 + 13);
+        buffer.putInt(12 + 4 + 13, (int) crc.getValue());
+        return patched;
+    }
+
+}
@@ -0,0 +1,65 @@
+package ru.kharevich.imageservice.util;
+
+import org.junit.jupiter.api.Test;
+import ru.kharevich.imageservice.dto.transferObjects.ResizedImage;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ImageTranscoderTest {
+
+    private static final long MAX_PIXELS = 16_000_000;
+
+    @Test
+    void toCompact_ShouldEncodeOpaquePngAsJpeg() throws IOException {
+        byte[] png = png(BufferedImage.TYPE_INT_RGB, new Color(200, 40, 40));
+
+        ResizedImage compact = ImageTranscoder.toCompact(png, 0.8f, MAX_PIXELS);
+
+        assertNotNull(compact);
+        assertEquals(ImageTranscoder.COMPACT_CONTENT_TYPE, compact.contentType());
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(compact.content()));
+        assertEquals(64, decoded.getWidth());
+        assertEquals(48, decoded.getHeight());
+    }
+
+    @Test
+    void toCompact_ShouldSkipImagesWithTransparency() throws IOException {
+        byte[] png = png(BufferedImage.TYPE_INT_ARGB, new Color(200, 40, 40, 128));
+
+        assertNull(ImageTranscoder.toCompact(png, 0.8f, MAX_PIXELS));
+    }
+
+    @Test
+    void toCompact_ShouldSkipUnreadableContent() {
+        assertNull(ImageTranscoder.toCompact("<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes(), 0.8f, MAX_PIXELS));
+    }
+
+    @Test
+    void toCompact_ShouldSkipImage_WhenPixelCountExceedsLimit() throws IOException {
+        byte[] png = png(BufferedImage.TYPE_INT_RGB, new Color(200, 40, 40));
+
+        assertNull(ImageTranscoder.toCompact(png, 0.8f, 64 * 48 - 1));
+    }
+
+    private static byte[] png(int type, Color color) throws IOException {
+        BufferedImage image = new BufferedImage(64, 48, type);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, 64, 48);
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+}
@@ -0,0 +1,41 @@
+package ru.kharevich.imageservice.util.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollector;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class S3PoolMetricPublisherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final S3PoolMetricPublisher publisher = new S3PoolMetricPublisher(meterRegistry, "sync");
+
+    @Test
+    void publish_ShouldExposeNestedHttpClientPoolMetricsAsGauges() {
+        MetricCollector apiCall = MetricCollector.create("ApiCall");
+        MetricCollector httpClient = apiCall.createChild("ApiCallAttempt").createChild("HttpClient");
+        httpClient.reportMetric(HttpMetric.LEASED_CONCURRENCY, 7);
+        httpClient.reportMetric(HttpMetric.PENDING_CONCURRENCY_ACQUIRES, 3);
+        httpClient.reportMetric(HttpMetric.AVAILABLE_CONCURRENCY, 2);
+        httpClient.reportMetric(HttpMetric.MAX_CONCURRENCY, 200);
+        httpClient.reportMetric(HttpMetric.CONCURRENCY_ACQUIRE_DURATION, Duration.ofMillis(15));
+
+        publisher.publish(apiCall.collect());
+
+        assertEquals(7, gauge("s3.http.pool.leased"));
+        assertEquals(3, gauge("s3.http.pool.pending"));
+        assertEquals(2, gauge("s3.http.pool.available"));
+        assertEquals(200, gauge("s3.http.pool.max"));
+        assertEquals(1, meterRegistry.get("s3.http.pool.acquire").tag("client", "sync").timer().count());
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).tag("client", "sync").gauge().value();
+    }
+
+}